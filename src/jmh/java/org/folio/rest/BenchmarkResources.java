@@ -0,0 +1,63 @@
+package org.folio.rest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.folio.rest.marc.MarcRecordReader;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * The input of the benchmarks: the bundled rules and the 500 records of msplit00000000.mrc, read from the
+ * test resources once per trial.
+ */
+public final class BenchmarkResources {
+
+  public static final String MARC_FILE = "msplit00000000.mrc";
+  public static final int MARC_FILE_RECORDS = 500;
+
+  private BenchmarkResources() {
+  }
+
+  public static byte[] marcFile() {
+    return read(MARC_FILE);
+  }
+
+  /**
+   * @return the bytes of each record of the marc file
+   */
+  public static List<byte[]> marcRecords() {
+    try {
+      MarcRecordReader reader = new MarcRecordReader(new ByteArrayInputStream(marcFile()));
+      List<byte[]> records = new ArrayList<>();
+      byte[] record;
+      while ((record = reader.next()) != null) {
+        records.add(record);
+      }
+      return records;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public static JsonObject rules() {
+    return new JsonObject(new String(read("rules.json"), StandardCharsets.UTF_8));
+  }
+
+  private static byte[] read(String resource) {
+    try (InputStream in = BenchmarkResources.class.getClassLoader().getResourceAsStream(resource)) {
+      if (in == null) {
+        throw new IllegalStateException("test resource not found: " + resource);
+      }
+      return IOUtils.toByteArray(in);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,52 @@
+package org.folio.rest.impl;
+
+import java.util.concurrent.TimeUnit;
+
+import org.folio.rest.jaxrs.model.Instance;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Setting mapped values into a new instance: a plain field, a list of strings and a field of a new
+ * element of a list of objects.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BuildObjectBenchmark {
+
+  private final String[] title = {"title"};
+  private final String[] languages = {"languages"};
+  private final String[] identifierValue = {"identifiers", "value"};
+
+  @Benchmark
+  public Object field() {
+    Instance instance = new Instance();
+    LoaderAPI.buildObject(instance, title, true, "The adventures of Huckleberry Finn", new Object[] {null});
+    return instance;
+  }
+
+  @Benchmark
+  public Object stringList() {
+    Instance instance = new Instance();
+    LoaderAPI.buildObject(instance, languages, true, "eng", new Object[] {null});
+    return instance;
+  }
+
+  @Benchmark
+  public Object objectList() {
+    Instance instance = new Instance();
+    LoaderAPI.buildObject(instance, identifierValue, true, "0394535219", new Object[] {null});
+    return instance;
+  }
+}
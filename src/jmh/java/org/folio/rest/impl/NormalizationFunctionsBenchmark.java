@@ -0,0 +1,63 @@
+package org.folio.rest.impl;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The rule functions on typical subfield data, with the parameter parsed once as the compiled rules do.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NormalizationFunctionsBenchmark {
+
+  private final String title = "The adventures of Huckleberry Finn : a novel /.";
+  private final String controlField = "850610s1985    nyu           000 1 eng  ";
+  private final String isbn = "0-394-53521-9 (pbk.)";
+  private final NormalizationFunctions.Parameter range =
+    new NormalizationFunctions.Parameter("35-37", null, null);
+  private final NormalizationFunctions.Parameter digits =
+    new NormalizationFunctions.Parameter("\\D", Pattern.compile("\\D"), "");
+  private final NormalizationFunctions.Parameter none = new NormalizationFunctions.Parameter(null, null, null);
+
+  @Benchmark
+  public String charSelect() {
+    return NormalizationFunctions.runFunction(NormalizationFunctions.Function.CHAR_SELECT, controlField, range);
+  }
+
+  @Benchmark
+  public String removeEndingPunc() {
+    return NormalizationFunctions.runFunction(NormalizationFunctions.Function.REMOVE_ENDING_PUNC, title, none);
+  }
+
+  @Benchmark
+  public String trimPeriod() {
+    return NormalizationFunctions.runFunction(NormalizationFunctions.Function.TRIM_PERIOD, title, none);
+  }
+
+  @Benchmark
+  public String regexReplace() {
+    return NormalizationFunctions.runFunction(NormalizationFunctions.Function.REGEX_REPLACE, isbn, digits);
+  }
+
+  /**
+   * the same function by name, parsing the parameter on every call
+   */
+  @Benchmark
+  public String charSelectByName() {
+    return NormalizationFunctions.runFunction("char_select", controlField, "35-37");
+  }
+}
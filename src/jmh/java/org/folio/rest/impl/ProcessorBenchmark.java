@@ -0,0 +1,84 @@
+package org.folio.rest.impl;
+
+import java.io.ByteArrayInputStream;
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.folio.rest.BenchmarkResources;
+import org.folio.rest.rules.MappingPlan;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+
+/**
+ * End to end throughput of a load in test mode - read, map and serialize the records of the marc file,
+ * nothing is uploaded. The score is records per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProcessorBenchmark {
+
+  private static final String TENANT = "benchmark";
+
+  @Param({"false", "true"})
+  private boolean storeSource;
+
+  @Param({"1", "0"})
+  private int mappingThreads;
+
+  private Vertx vertx;
+  private Context context;
+  private byte[] file;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    vertx = Vertx.vertx();
+    context = vertx.getOrCreateContext();
+    file = BenchmarkResources.marcFile();
+    LoaderAPI.TENANT_MAPPING_PLAN_MAP.put(TENANT, MappingPlan.compile(BenchmarkResources.rules()));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    LoaderAPI.TENANT_MAPPING_PLAN_MAP.remove(TENANT);
+    vertx.close();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BenchmarkResources.MARC_FILE_RECORDS)
+  public Object load() throws Exception {
+    Processor processor = new Processor(TENANT, new HashMap<>(), null, storeSource, null);
+    processor.setMappingThreads(mappingThreads);
+    CompletableFuture<Object> done = new CompletableFuture<>();
+    boolean admitted = processor.load(true, new ByteArrayInputStream(file), context, 50000, result -> {
+      if (result.succeeded()) {
+        done.complete(result.result());
+      } else {
+        done.completeExceptionally(result.cause());
+      }
+    });
+    if (!admitted) {
+      throw new IllegalStateException(LoadExecutor.BUSY);
+    }
+    return done.get();
+  }
+}
@@ -0,0 +1,93 @@
+package org.folio.rest.impl;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.folio.rest.BenchmarkResources;
+import org.folio.rest.id.IdStrategy;
+import org.folio.rest.rules.MappingPlan;
+import org.folio.rest.struct.ByteBuilder;
+import org.folio.rest.struct.LoadMetrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mapping and serialization of a single record on one thread, cycling through the records of the marc
+ * file. Run with -prof gc, the allocation rate per operation shows what mapping a record allocates beyond
+ * the instance itself.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecordMapperBenchmark {
+
+  private ByteBuffer[] records;
+  private int next;
+  private RecordMapper mapper;
+  private RecordMapper sourceMapper;
+  private final ByteBuilder out = new ByteBuilder();
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    List<byte[]> bytes = BenchmarkResources.marcRecords();
+    records = new ByteBuffer[bytes.size()];
+    for (int i = 0; i < records.length; i++) {
+      records[i] = ByteBuffer.wrap(bytes.get(i));
+    }
+    MappingPlan plan = MappingPlan.compile(BenchmarkResources.rules());
+    mapper = new RecordMapper(plan, false, IdStrategy.TIME_ORDERED.newGenerator("benchmark"), new LoadMetrics());
+    sourceMapper = new RecordMapper(plan, true, IdStrategy.TIME_ORDERED.newGenerator("benchmark"),
+      new LoadMetrics());
+  }
+
+  private ByteBuffer nextRecord() {
+    ByteBuffer record = records[next];
+    next = (next + 1) % records.length;
+    record.rewind();
+    return record;
+  }
+
+  /**
+   * rule evaluation and object building only
+   */
+  @Benchmark
+  public Object map() throws Exception {
+    mapper.map(nextRecord());
+    return mapper.getInstance();
+  }
+
+  /**
+   * the work of a mapping thread per record without source records: map and write the instance COPY line
+   */
+  @Benchmark
+  public int mapAndWriteInstance() throws Exception {
+    mapper.map(nextRecord());
+    out.setLength(0);
+    mapper.writeInstance(out);
+    return out.length();
+  }
+
+  /**
+   * source record generation: the record written as MARC-in-JSON, escaped for COPY
+   */
+  @Benchmark
+  public int writeSource() throws Exception {
+    sourceMapper.map(nextRecord());
+    out.setLength(0);
+    sourceMapper.writeSource(out);
+    return out.length();
+  }
+}
@@ -0,0 +1,46 @@
+package org.folio.rest.javascript;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A custom function of the bundled rules run by the script engine, compiled once, and the same function
+ * memoized as a pure function on repeating input.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JSManagerBenchmark {
+
+  private static final String SCRIPT = "DATA.replace(/\\D/g,'');";
+
+  private final String[] data = {"0-394-53521-9 (pbk.)", "978-3-16-148410-0", "0 19 852663 6"};
+  private int next;
+
+  private String nextData() {
+    next = (next + 1) % data.length;
+    return data[next];
+  }
+
+  @Benchmark
+  public Object runJScript() throws Exception {
+    return JSManager.runJScript(SCRIPT, nextData());
+  }
+
+  @Benchmark
+  public Object runPureJScript() throws Exception {
+    return JSManager.runPureJScript(SCRIPT, nextData());
+  }
+}
@@ -0,0 +1,50 @@
+package org.folio.rest.utils;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Escaping of mapped data and of json for COPY, on data that needs no escaping (the common case, returned
+ * as is) and on data that does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EscaperBenchmark {
+
+  @Param({"plain", "escaped"})
+  private String kind;
+
+  private String data;
+
+  @Setup
+  public void setUp() {
+    data = "plain".equals(kind)
+      ? "The adventures of Huckleberry Finn : a novel / by Mark Twain ; illustrated by E.W. Kemble."
+      : "The \"adventures\" of Huckleberry Finn | a novel \\ by Mark Twain\t; illustrated by E.W. Kemble.";
+  }
+
+  @Benchmark
+  public String escape() {
+    return Escaper.escape(data);
+  }
+
+  @Benchmark
+  public String escapeSqlCopyFrom() {
+    return Escaper.escapeSqlCopyFrom(data);
+  }
+}
@@ -0,0 +1,72 @@
+package org.folio.rest.id;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import org.folio.rest.marc.MarcDataField;
+import org.folio.rest.marc.MarcRecord;
+
+/**
+ * Derives the id from the content of the record - a name based (version 3) UUID of the tenant, the control
+ * number (001) and the system control numbers (035 $a). Loading the same record for the same tenant again
+ * generates the same id, so a reload of a partially failed load produces the same keys. A record without
+ * 001 and 035 $a gets the UUID of the tenant and all of its bytes. Records sharing their control numbers
+ * share their id. Not thread safe.
+ */
+public class ContentIdGenerator implements IdGenerator {
+
+  static final int CONTROL_NUMBER = 1;
+  static final int SYSTEM_CONTROL_NUMBER = 35;
+  private static final int[] TAGS = { CONTROL_NUMBER, SYSTEM_CONTROL_NUMBER };
+  private static final char FIELD_SEPARATOR = '\u001E';
+  private static final char SUBFIELD_SEPARATOR = '\u001F';
+
+  private final String tenantId;
+  private final MarcDataField dataField = new MarcDataField();
+  private final StringBuilder name = new StringBuilder();
+
+  public ContentIdGenerator(String tenantId) {
+    this.tenantId = tenantId;
+  }
+
+  @Override
+  public String next(MarcRecord record) {
+    name.setLength(0);
+    name.append(tenantId);
+    int tenantLength = name.length();
+    for (int field = 0; field < record.getFieldCount(); field++) {
+      int tag = record.getTag(field);
+      if (tag == CONTROL_NUMBER) {
+        name.append(FIELD_SEPARATOR).append(record.getData(field));
+      } else if (tag == SYSTEM_CONTROL_NUMBER) {
+        appendSystemControlNumbers(record, field);
+      }
+    }
+    if (name.length() == tenantLength) {
+      byte[] tenant = tenantId.getBytes(StandardCharsets.UTF_8);
+      byte[] bytes = record.getBytes();
+      byte[] content = new byte[tenant.length + bytes.length];
+      System.arraycopy(tenant, 0, content, 0, tenant.length);
+      System.arraycopy(bytes, 0, content, tenant.length, bytes.length);
+      return UUID.nameUUIDFromBytes(content).toString();
+    }
+    return UUID.nameUUIDFromBytes(name.toString().getBytes(StandardCharsets.UTF_8)).toString();
+  }
+
+  private void appendSystemControlNumbers(MarcRecord record, int field) {
+    dataField.select(record, field);
+    for (int n = 0; n < dataField.getSubfieldCount(); n++) {
+      if (dataField.getCode(n) == 'a') {
+        name.append(SUBFIELD_SEPARATOR).append(dataField.getData(n));
+      }
+    }
+  }
+
+  /**
+   * @return the tags of the fields the id is derived from
+   */
+  @Override
+  public int[] getTags() {
+    return TAGS.clone();
+  }
+}
@@ -0,0 +1,24 @@
+package org.folio.rest.id;
+
+import org.folio.rest.marc.MarcRecord;
+
+/**
+ * Generates the id of the instance - and of its source record - mapped from a marc record. A generator
+ * is created per mapping thread, see {@link IdStrategy#newGenerator(String)}, and need not be thread safe.
+ */
+public interface IdGenerator {
+
+  /**
+   * @param record - the record the instance was mapped from, wrapped until the next record is mapped
+   * @return the id, a UUID in its canonical form
+   */
+  String next(MarcRecord record);
+
+  /**
+   * @return the tags of the fields the id is derived from, they are kept in the record even if no rule
+   * maps them
+   */
+  default int[] getTags() {
+    return new int[0];
+  }
+}
@@ -0,0 +1,62 @@
+package org.folio.rest.id;
+
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * How the ids of the mapped instances are generated.
+ */
+public enum IdStrategy {
+
+  /**
+   * a random (version 4) UUID per record, drawn from the shared SecureRandom of {@link UUID#randomUUID()}
+   */
+  RANDOM {
+    @Override
+    public IdGenerator newGenerator(String tenantId) {
+      return record -> UUID.randomUUID().toString();
+    }
+  },
+
+  /**
+   * a time ordered (version 7 layout) UUID per record, drawn from a random source of the mapping thread -
+   * ids of consecutive records are close in the index of the instance table
+   */
+  TIME_ORDERED {
+    @Override
+    public IdGenerator newGenerator(String tenantId) {
+      return new TimeOrderedIdGenerator();
+    }
+  },
+
+  /**
+   * a name based UUID derived from the tenant and the control numbers of the record, the same for every
+   * load of the record, see {@link ContentIdGenerator}
+   */
+  CONTENT {
+    @Override
+    public IdGenerator newGenerator(String tenantId) {
+      return new ContentIdGenerator(tenantId);
+    }
+  };
+
+  private final String parameter = name().toLowerCase(Locale.ROOT);
+
+  /**
+   * @return the strategy with the given query parameter value - its name in lower case - null if there
+   * is no such strategy
+   */
+  public static IdStrategy of(String parameter) {
+    for (IdStrategy strategy : values()) {
+      if (strategy.parameter.equals(parameter)) {
+        return strategy;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return a generator for one mapping thread
+   */
+  public abstract IdGenerator newGenerator(String tenantId);
+}
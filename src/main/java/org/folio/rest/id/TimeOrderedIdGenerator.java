@@ -0,0 +1,68 @@
+package org.folio.rest.id;
+
+import java.util.SplittableRandom;
+
+import org.folio.rest.marc.MarcRecord;
+
+/**
+ * Generates UUIDs with the version 7 layout: the first 48 bits are the unix time in milliseconds, the
+ * next 12 bits count the ids generated within the millisecond (starting at a random value) so that the
+ * ids of a generator are strictly increasing, the remaining 62 bits are random. Not thread safe, the
+ * random bits come from a generator seeded once and are not suitable where ids must not be guessable.
+ */
+public class TimeOrderedIdGenerator implements IdGenerator {
+
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+  private static final int COUNTER_BITS = 12;
+  private static final int MAX_COUNTER = (1 << COUNTER_BITS) - 1;
+
+  private final SplittableRandom random = new SplittableRandom();
+  private final char[] chars = new char[36];
+  private long lastMillis;
+  private int counter;
+
+  @Override
+  public String next(MarcRecord record) {
+    return next(System.currentTimeMillis());
+  }
+
+  String next(long millis) {
+    if (millis > lastMillis) {
+      lastMillis = millis;
+      //leave room to count up within the millisecond
+      counter = random.nextInt(MAX_COUNTER / 2 + 1);
+    } else if (counter < MAX_COUNTER) {
+      counter++;
+    } else {
+      //the counter is exhausted or the clock went back, borrow the next millisecond
+      lastMillis++;
+      counter = random.nextInt(MAX_COUNTER / 2 + 1);
+    }
+    long mostSigBits = lastMillis << 16 | 0x7000L | counter;
+    long leastSigBits = random.nextLong() & 0x3FFFFFFFFFFFFFFFL | 0x8000000000000000L;
+    return format(mostSigBits, leastSigBits);
+  }
+
+  /**
+   * @return the canonical form of the UUID, as UUID.toString() without creating the UUID
+   */
+  private String format(long mostSigBits, long leastSigBits) {
+    hex(mostSigBits >>> 32, 8, 0);
+    chars[8] = '-';
+    hex(mostSigBits >>> 16, 4, 9);
+    chars[13] = '-';
+    hex(mostSigBits, 4, 14);
+    chars[18] = '-';
+    hex(leastSigBits >>> 48, 4, 19);
+    chars[23] = '-';
+    hex(leastSigBits, 12, 24);
+    return new String(chars);
+  }
+
+  private void hex(long value, int digits, int offset) {
+    for (int i = offset + digits - 1; i >= offset; i--) {
+      chars[i] = HEX[(int) (value & 0xF)];
+      value >>>= 4;
+    }
+  }
+}
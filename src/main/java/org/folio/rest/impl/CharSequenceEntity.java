@@ -0,0 +1,96 @@
+package org.folio.rest.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.io.input.CharSequenceReader;
+import org.apache.commons.io.input.ReaderInputStream;
+import org.apache.http.entity.AbstractHttpEntity;
+
+/**
+ * A request body streaming the UTF-8 bytes of a CharSequence (usually the StringBuilder a batch was
+ * built in) as a chunked body, encoding a small window at a time - so a batch is not copied into a
+ * String and a byte array before it is sent.
+ */
+class CharSequenceEntity extends AbstractHttpEntity {
+
+  private static final int BUFFER_SIZE = 16 * 1024;
+
+  private final CharSequence content;
+
+  CharSequenceEntity(CharSequence content, String contentType) {
+    this.content = content;
+    setContentType(contentType);
+    setChunked(true);
+  }
+
+  @Override
+  public boolean isRepeatable() {
+    return true;
+  }
+
+  @Override
+  public long getContentLength() {
+    return -1;
+  }
+
+  @Override
+  public InputStream getContent() throws IOException {
+    return new ReaderInputStream(new CharSequenceReader(content), StandardCharsets.UTF_8, BUFFER_SIZE);
+  }
+
+  @Override
+  public void writeTo(OutputStream out) throws IOException {
+    //same replacement of malformed input as String.getBytes()
+    CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+      .onMalformedInput(CodingErrorAction.REPLACE)
+      .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    char[] chars = new char[BUFFER_SIZE];
+    CharBuffer in = CharBuffer.wrap(chars);
+    //a char is at most 3 bytes in UTF-8 (a surrogate pair is 4 bytes for 2 chars), so a full window always fits
+    ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE * 3);
+    int length = content.length();
+    int next = 0;
+    boolean endOfInput;
+    do {
+      int count = Math.min(in.remaining(), length - next);
+      copy(next, next + count, chars, in.position());
+      next += count;
+      in.position(in.position() + count);
+      endOfInput = next == length;
+      in.flip();
+      encoder.encode(in, bytes, endOfInput);
+      //an unpaired high surrogate at the end of the window stays in the buffer for the next round
+      in.compact();
+      if (endOfInput) {
+        encoder.flush(bytes);
+      }
+      out.write(bytes.array(), 0, bytes.position());
+      bytes.clear();
+    } while (!endOfInput);
+    out.flush();
+  }
+
+  private void copy(int start, int end, char[] target, int offset) {
+    if (content instanceof StringBuilder) {
+      ((StringBuilder) content).getChars(start, end, target, offset);
+    } else if (content instanceof String) {
+      ((String) content).getChars(start, end, target, offset);
+    } else {
+      for (int i = start; i < end; i++) {
+        target[offset++] = content.charAt(i);
+      }
+    }
+  }
+
+  @Override
+  public boolean isStreaming() {
+    return false;
+  }
+}
@@ -0,0 +1,79 @@
+package org.folio.rest.impl;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.WorkerExecutor;
+
+/**
+ * The worker pools loads run on. A load holds its worker thread for as long as it runs, hours for a large
+ * marc file, so loads do not use the shared worker pool of vert.x, which the other blocking handlers of the
+ * module need. Each kind of load gets its own named pool and admits at most threads + queue loads, a load
+ * beyond that is rejected instead of waiting for hours.
+ * <p>
+ * The sizes can be set with the system properties loader.&lt;name&gt;.threads and loader.&lt;name&gt;.queue,
+ * for example -Dloader.marc-load.threads=4
+ */
+enum LoadExecutor {
+
+  MARC("marc-load", 2, 2),
+  // static loads run one after the other
+  STATIC("static-load", 1, 4),
+  TEST("test-load", 2, 4);
+
+  static final String BUSY = "the loader is busy, retry later";
+
+  private static final Logger LOGGER = LogManager.getLogger(LoadExecutor.class);
+  // a load may run for a day before vert.x reports its thread as blocked
+  private static final long MAX_EXECUTE_NANOS = TimeUnit.HOURS.toNanos(24);
+
+  private final String name;
+  private final int threads;
+  private final int queue;
+  // loads running or waiting for a thread
+  private final AtomicInteger admitted = new AtomicInteger();
+
+  LoadExecutor(String name, int threads, int queue) {
+    this.name = name;
+    this.threads = Math.max(1, Integer.getInteger("loader." + name + ".threads", threads));
+    this.queue = Math.max(0, Integer.getInteger("loader." + name + ".queue", queue));
+  }
+
+  /**
+   * run the blocking code on a thread of this pool
+   * @return false if the pool is full, the code is not run and whenDone is not called
+   */
+  <T> boolean execute(Vertx vertx, Handler<Future<T>> blockingCode, Handler<AsyncResult<T>> whenDone) {
+    if (admitted.incrementAndGet() > threads + queue) {
+      admitted.decrementAndGet();
+      LOGGER.warn(name + " rejected a load, " + threads + " running and " + queue + " waiting");
+      return false;
+    }
+    // the pool is shared by name, it is created by the first load and closed when the last one is done
+    WorkerExecutor executor = vertx.createSharedWorkerExecutor(name, threads, MAX_EXECUTE_NANOS);
+    executor.executeBlocking(blockingCode, false, result -> {
+      admitted.decrementAndGet();
+      executor.close();
+      whenDone.handle(result);
+    });
+    return true;
+  }
+
+  /**
+   * @return the loads running or waiting for a thread
+   */
+  int getAdmitted() {
+    return admitted.get();
+  }
+
+  int getCapacity() {
+    return threads + queue;
+  }
+}
@@ -0,0 +1,152 @@
+package org.folio.rest.impl;
+
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.UUID;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.folio.rest.struct.LoadMetrics;
+
+import io.vertx.core.Context;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * A load of a marc file running in the background, started by POST /load/marc-data/jobs. The progress of
+ * the processor is read while it runs, a cancelled job stops before the next chunk is batched. Once done,
+ * the job keeps only the progress of the processor.
+ */
+class LoadJob {
+
+  private static final Logger LOGGER = LogManager.getLogger(LoadJob.class);
+
+  enum Status { RUNNING, COMPLETED, FAILED, CANCELLED }
+
+  private final String id = UUID.randomUUID().toString();
+  private final String tenantId;
+  // dropped once the job is done, it holds the batch buffers at their grown capacity
+  private volatile Processor processor;
+  private final long started = System.currentTimeMillis();
+  private volatile long finished;
+  private volatile Status status = Status.RUNNING;
+  // the summary of a completed job, the error of a failed one
+  private volatile String result;
+  // the progress of the processor when the job is done
+  private int recordsRead;
+  private long recordsMapped;
+  private long recordsUploaded;
+  private String unprocessed;
+  private boolean cancelRequested;
+  private LoadMetrics metrics;
+
+  LoadJob(String tenantId, Processor processor) {
+    this.tenantId = tenantId;
+    this.processor = processor;
+  }
+
+  /**
+   * @return false if the loader is busy and the job is not started
+   */
+  boolean start(InputStream entity, Context vertxContext, int bulkSize) {
+    Processor running = processor;
+    return running.load(false, entity, vertxContext, bulkSize, whenDone -> {
+      Status done;
+      if (whenDone.succeeded()) {
+        result = String.valueOf(whenDone.result());
+        done = Status.COMPLETED;
+      } else {
+        result = whenDone.cause().getMessage();
+        done = running.isCancelled() ? Status.CANCELLED : Status.FAILED;
+        if (done == Status.FAILED) {
+          LOGGER.error("job " + id + " failed: " + result, whenDone.cause());
+        }
+      }
+      finish(running, done);
+      LOGGER.info("job " + id + " " + done);
+    });
+  }
+
+  /**
+   * keep the progress of the done processor and drop the processor itself
+   */
+  private synchronized void finish(Processor done, Status doneStatus) {
+    recordsRead = done.getRecordsRead();
+    recordsMapped = done.getRecordsMapped();
+    recordsUploaded = done.getRecordsUploaded();
+    unprocessed = done.getUnprocessed();
+    cancelRequested = done.isCancelled();
+    metrics = done.getMetrics();
+    processor = null;
+    finished = System.currentTimeMillis();
+    status = doneStatus;
+  }
+
+  /**
+   * ask the job to stop, it stops between batches
+   */
+  void cancel() {
+    Processor running = processor;
+    if (running != null) {
+      running.cancel();
+    }
+  }
+
+  String getId() {
+    return id;
+  }
+
+  String getTenantId() {
+    return tenantId;
+  }
+
+  Status getStatus() {
+    return status;
+  }
+
+  synchronized LoadMetrics getMetrics() {
+    Processor running = processor;
+    return running != null ? running.getMetrics() : metrics;
+  }
+
+  boolean isDone() {
+    return status != Status.RUNNING;
+  }
+
+  /**
+   * @return the time the job is done, 0 while it runs
+   */
+  long getFinished() {
+    return finished;
+  }
+
+  synchronized JsonObject toJson() {
+    Processor running = processor;
+    long end = isDone() ? finished : System.currentTimeMillis();
+    long elapsed = Math.max(1, end - started);
+    long uploaded = running != null ? running.getRecordsUploaded() : recordsUploaded;
+    JsonArray positions = new JsonArray();
+    for (String position : (running != null ? running.getUnprocessed() : unprocessed).split(" ")) {
+      if (position.startsWith("#")) {
+        positions.add(Long.parseLong(position.substring(1)));
+      }
+    }
+    JsonObject json = new JsonObject()
+      .put("id", id)
+      .put("status", status.name())
+      .put("cancelRequested", running != null ? running.isCancelled() : cancelRequested)
+      .put("startedDate", Instant.ofEpochMilli(started).toString())
+      .put("elapsedMillis", end - started)
+      .put("recordsRead", running != null ? running.getRecordsRead() : recordsRead)
+      .put("recordsMapped", running != null ? running.getRecordsMapped() : recordsMapped)
+      .put("recordsUploaded", uploaded)
+      .put("batchesInFlight", running != null ? running.getBatchesInFlight() : 0)
+      .put("recordsPerSecond", uploaded * 1000 / elapsed)
+      .put("unprocessed", positions);
+    if (isDone()) {
+      json.put("finishedDate", Instant.ofEpochMilli(finished).toString());
+      json.put(status == Status.COMPLETED ? "summary" : "error", result);
+    }
+    return json;
+  }
+}
@@ -1,15 +1,10 @@
 package org.folio.rest.impl;
 
 import java.io.InputStream;
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.lang.reflect.ParameterizedType;
-import java.util.Collection;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.ws.rs.core.Response;
 
@@ -17,7 +12,12 @@ import org.apache.commons.io.IOUtils;
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
 import org.folio.rest.annotations.Validate;
+import org.folio.rest.id.IdStrategy;
+import org.folio.rest.javascript.JSManager;
 import org.folio.rest.jaxrs.resource.LoadResource;
+import org.folio.rest.rules.MappingPlan;
+import org.folio.rest.service.PathAccessor;
+import org.folio.rest.struct.LoadMetrics;
 import org.folio.rest.tools.ClientGenerator;
 import org.folio.rest.tools.client.HttpClientFactory;
 import org.folio.rest.tools.client.interfaces.HttpClientInterface;
@@ -27,10 +27,9 @@ import org.folio.rest.tools.utils.TenantTool;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Context;
 import io.vertx.core.Handler;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 
-import static org.folio.rest.service.LoaderHelper.isPrimitiveOrPrimitiveWrapperOrString;
-
 
 public class LoaderAPI implements LoadResource {
 
@@ -41,6 +40,14 @@ public class LoaderAPI implements LoadResource {
 
   // rules are not stored in db as this is a test loading module
   static final Map<String, JsonObject> TENANT_RULES_MAP = new HashMap<>();
+  // the rules compiled once at upload time, this is what the processor walks for every record
+  static final Map<String, MappingPlan> TENANT_MAPPING_PLAN_MAP = new HashMap<>();
+  // jobs started by /load/marc-data/jobs, a job that is done is kept until deleted or expired
+  static final Map<String, LoadJob> JOBS = new ConcurrentHashMap<>();
+  // the stage times and batch sizes of all loads of a tenant since the module started
+  private static final Map<String, LoadMetrics> TENANT_METRICS = new ConcurrentHashMap<>();
+  private static final long JOB_RETENTION_MILLIS = 24 * 60 * 60 * 1000L;
+  private static final String JOB_NOT_FOUND = "job not found: ";
   private int bulkSize = 50000;
 
   @Override
@@ -58,14 +65,28 @@ public class LoaderAPI implements LoadResource {
 
     String sqlFile = IOUtils.toString(entity, "UTF8");
 
+    JsonObject rulesFile;
     try {
-      TENANT_RULES_MAP.put(tenantId, new JsonObject(sqlFile));
+      rulesFile = new JsonObject(sqlFile);
     } catch (Exception e) {
       asyncResultHandler.handle(io.vertx.core.Future.succeededFuture(
         PostLoadMarcRulesResponse.withPlainBadRequest("File is not a valid json: " + e.getMessage())));
       return;
     }
 
+    MappingPlan mappingPlan;
+    try {
+      mappingPlan = MappingPlan.compile(rulesFile);
+    } catch (IllegalArgumentException e) {
+      LOGGER.error(e.getMessage(), e);
+      asyncResultHandler.handle(io.vertx.core.Future.succeededFuture(
+        PostLoadMarcRulesResponse.withPlainBadRequest("File is not a valid rules file: " + e.getMessage())));
+      return;
+    }
+
+    TENANT_RULES_MAP.put(tenantId, rulesFile);
+    TENANT_MAPPING_PLAN_MAP.put(tenantId, mappingPlan);
+
     asyncResultHandler.handle(
       io.vertx.core.Future.succeededFuture(PostLoadMarcRulesResponse.withCreated("")));
   }
@@ -88,6 +109,66 @@ public class LoaderAPI implements LoadResource {
     asyncResultHandler.handle(io.vertx.core.Future.succeededFuture(GetLoadMarcRulesResponse.withJsonOK(stream)));
   }
 
+  /**
+   * the time spent per stage and the batch sizes of the tenant's loads, in total and per job, and the
+   * javascript compile and memoization counters of the module. synchronous loads are not jobs, they only
+   * add to the tenant's total
+   */
+  @Override
+  public void getLoadMetrics(Map<String, String> okapiHeaders,
+      Handler<AsyncResult<Response>> asyncResultHandler, Context vertxContext) {
+
+    String tenantId = TenantTool.calculateTenantId(okapiHeaders.get(ClientGenerator.OKAPI_HEADER_TENANT));
+    if (tenantId.equals(TENANT_ID_NULL)) {
+      asyncResultHandler.handle(io.vertx.core.Future.succeededFuture(
+        GetLoadMetricsResponse.withPlainBadRequest(TENANT_NOT_SET)));
+      return;
+    }
+
+    removeExpiredJobs();
+    JsonArray jobs = new JsonArray();
+    for (LoadJob job : JOBS.values()) {
+      if (job.getTenantId().equals(tenantId)) {
+        jobs.add(new JsonObject()
+          .put("id", job.getId())
+          .put("status", job.getStatus().name())
+          .put("metrics", job.getMetrics().toJson()));
+      }
+    }
+    long compiles = 0;
+    long compileMillis = 0;
+    JsonArray scripts = new JsonArray();
+    for (Map.Entry<String, JSManager.CompileStats> entry : JSManager.getCompileStats().entrySet()) {
+      JSManager.CompileStats stats = entry.getValue();
+      compiles += stats.getCompiles();
+      compileMillis += stats.getCompileMillis();
+      scripts.add(new JsonObject()
+        .put("script", entry.getKey())
+        .put("compiles", stats.getCompiles())
+        .put("compileMillis", stats.getCompileMillis()));
+    }
+    JsonObject javascript = new JsonObject()
+      .put("scripts", JSManager.getCompileStats().size())
+      .put("compiles", compiles)
+      .put("compileMillis", compileMillis)
+      .put("memoHits", JSManager.getMemoHits())
+      .put("memoMisses", JSManager.getMemoMisses())
+      .put("perScript", scripts);
+
+    asyncResultHandler.handle(io.vertx.core.Future.succeededFuture(GetLoadMetricsResponse.withJsonOK(
+      toStream(new JsonObject()
+        .put("tenant", tenantMetrics(tenantId).toJson())
+        .put("jobs", jobs)
+        .put("javascript", javascript)))));
+  }
+
+  /**
+   * @return the metrics all loads of the tenant add to
+   */
+  static LoadMetrics tenantMetrics(String tenantId) {
+    return TENANT_METRICS.computeIfAbsent(tenantId, k -> new LoadMetrics());
+  }
+
   @Override
   public void getLoadMarcData(Map<String, String> okapiHeaders,
       Handler<AsyncResult<Response>> asyncResultHandler, Context vertxContext) {
@@ -109,18 +190,154 @@ public class LoaderAPI implements LoadResource {
 
   @Validate
   @Override
-  public void postLoadMarcData(String storageURL, int bulkSize, boolean storeSource, InputStream entity,
+  public void postLoadMarcData(String storageURL, int bulkSize, int batchBytes, int batchMaxMillis,
+      boolean storeSource, int mappingThreads, boolean fileBacked, int shards, String idStrategy, InputStream entity,
       Map<String, String> okapiHeaders, Handler<AsyncResult<Response>> asyncResultHandler,
       Context vertxContext) throws Exception {
 
-    if (!validRequest(asyncResultHandler, okapiHeaders)) {
+    if (!validRequest(asyncResultHandler, okapiHeaders) || !validIdStrategy(asyncResultHandler, idStrategy)) {
       return;
     }
 
     this.bulkSize = bulkSize;
     String tenantId = TenantTool.calculateTenantId(okapiHeaders.get(ClientGenerator.OKAPI_HEADER_TENANT));
+    Processor processor = newProcessor(tenantId, okapiHeaders, storageURL, batchBytes, batchMaxMillis,
+      storeSource, mappingThreads, fileBacked, shards, idStrategy);
+
+    whenStorageResponds(storageURL, tenantId, asyncResultHandler,
+      () -> processor.process(false, entity, vertxContext, asyncResultHandler, bulkSize));
+  }
+
+  @Validate
+  @Override
+  public void postLoadMarcDataJobs(String storageURL, int bulkSize, int batchBytes, int batchMaxMillis,
+      boolean storeSource, int mappingThreads, boolean fileBacked, int shards, String idStrategy, InputStream entity,
+      Map<String, String> okapiHeaders, Handler<AsyncResult<Response>> asyncResultHandler,
+      Context vertxContext) throws Exception {
+
+    if (!validRequest(asyncResultHandler, okapiHeaders) || !validIdStrategy(asyncResultHandler, idStrategy)) {
+      return;
+    }
+
+    String tenantId = TenantTool.calculateTenantId(okapiHeaders.get(ClientGenerator.OKAPI_HEADER_TENANT));
+    Processor processor = newProcessor(tenantId, okapiHeaders, storageURL, batchBytes, batchMaxMillis,
+      storeSource, mappingThreads, fileBacked, shards, idStrategy);
+
+    whenStorageResponds(storageURL, tenantId, asyncResultHandler, () -> {
+      removeExpiredJobs();
+      LoadJob job = new LoadJob(tenantId, processor);
+      if (!job.start(entity, vertxContext, bulkSize)) {
+        asyncResultHandler.handle(io.vertx.core.Future.succeededFuture(
+          PostLoadMarcDataJobsResponse.withPlainServiceUnavailable(LoadExecutor.BUSY)));
+        return;
+      }
+      JOBS.put(job.getId(), job);
+      LOGGER.info("job " + job.getId() + " started for tenant " + tenantId);
+      asyncResultHandler.handle(io.vertx.core.Future.succeededFuture(
+        PostLoadMarcDataJobsResponse.withJsonAccepted(toStream(job.toJson()))));
+    });
+  }
+
+  @Override
+  public void getLoadMarcDataJobs(Map<String, String> okapiHeaders,
+      Handler<AsyncResult<Response>> asyncResultHandler, Context vertxContext) {
+
+    String tenantId = TenantTool.calculateTenantId(okapiHeaders.get(ClientGenerator.OKAPI_HEADER_TENANT));
+    if (tenantId.equals(TENANT_ID_NULL)) {
+      asyncResultHandler.handle(io.vertx.core.Future.succeededFuture(
+        GetLoadMarcDataJobsResponse.withPlainBadRequest(TENANT_NOT_SET)));
+      return;
+    }
+
+    removeExpiredJobs();
+    JsonArray jobs = new JsonArray();
+    for (LoadJob job : JOBS.values()) {
+      if (job.getTenantId().equals(tenantId)) {
+        jobs.add(job.toJson());
+      }
+    }
+    asyncResultHandler.handle(io.vertx.core.Future.succeededFuture(GetLoadMarcDataJobsResponse.withJsonOK(
+      toStream(new JsonObject().put("jobs", jobs).put("totalRecords", jobs.size())))));
+  }
+
+  @Override
+  public void getLoadMarcDataJobsByJobId(String jobId, Map<String, String> okapiHeaders,
+      Handler<AsyncResult<Response>> asyncResultHandler, Context vertxContext) {
+
+    LoadJob job = getJob(jobId, okapiHeaders);
+    if (job == null) {
+      asyncResultHandler.handle(io.vertx.core.Future.succeededFuture(
+        GetLoadMarcDataJobsByJobIdResponse.withPlainNotFound(JOB_NOT_FOUND + jobId)));
+      return;
+    }
+    asyncResultHandler.handle(io.vertx.core.Future.succeededFuture(
+      GetLoadMarcDataJobsByJobIdResponse.withJsonOK(toStream(job.toJson()))));
+  }
+
+  /**
+   * cancel a running job, it stops between batches and stays listed as cancelled - remove a job that is done
+   */
+  @Override
+  public void deleteLoadMarcDataJobsByJobId(String jobId, Map<String, String> okapiHeaders,
+      Handler<AsyncResult<Response>> asyncResultHandler, Context vertxContext) {
+
+    LoadJob job = getJob(jobId, okapiHeaders);
+    if (job == null) {
+      asyncResultHandler.handle(io.vertx.core.Future.succeededFuture(
+        DeleteLoadMarcDataJobsByJobIdResponse.withPlainNotFound(JOB_NOT_FOUND + jobId)));
+      return;
+    }
+    if (job.isDone()) {
+      JOBS.remove(jobId);
+    } else {
+      LOGGER.info("job " + jobId + " cancel requested");
+      job.cancel();
+    }
+    asyncResultHandler.handle(io.vertx.core.Future.succeededFuture(
+      DeleteLoadMarcDataJobsByJobIdResponse.withNoContent()));
+  }
+
+  /**
+   * @return the job if it was started by the tenant of the request, null otherwise
+   */
+  private static LoadJob getJob(String jobId, Map<String, String> okapiHeaders) {
+    removeExpiredJobs();
+    String tenantId = TenantTool.calculateTenantId(okapiHeaders.get(ClientGenerator.OKAPI_HEADER_TENANT));
+    LoadJob job = JOBS.get(jobId);
+    return job != null && job.getTenantId().equals(tenantId) ? job : null;
+  }
+
+  private static void removeExpiredJobs() {
+    long expired = System.currentTimeMillis() - JOB_RETENTION_MILLIS;
+    JOBS.values().removeIf(job -> job.isDone() && job.getFinished() < expired);
+  }
+
+  private static OutStream toStream(JsonObject json) {
+    OutStream stream = new OutStream();
+    stream.setData(json);
+    return stream;
+  }
+
+  private static Processor newProcessor(String tenantId, Map<String, String> okapiHeaders, String storageURL,
+      int batchBytes, int batchMaxMillis, boolean storeSource, int mappingThreads, boolean fileBacked, int shards,
+      String idStrategy) {
+
     Processor processor = new Processor(tenantId, okapiHeaders, new Requester(), storeSource, null);
     processor.setUrl(storageURL);
+    processor.setMappingThreads(mappingThreads);
+    processor.setBatchLimits(batchBytes, batchMaxMillis);
+    processor.setFileBacked(fileBacked);
+    processor.setShards(shards);
+    processor.setIdStrategy(IdStrategy.of(idStrategy));
+    return processor;
+  }
+
+  /**
+   * run load once the inventory storage module responds to a health check, respond with an error otherwise
+   */
+  private static void whenStorageResponds(String storageURL, String tenantId,
+      Handler<AsyncResult<Response>> asyncResultHandler, Runnable load) throws Exception {
+
     HttpClientInterface client = HttpClientFactory.getHttpClient(storageURL, tenantId);
 
     //check if inventory storage is responding
@@ -146,7 +363,7 @@ public class LoaderAPI implements LoadResource {
           asyncResultHandler.handle(io.vertx.core.Future.succeededFuture(
             PostLoadMarcDataResponse.withPlainBadRequest(msg)));
         } else {
-          processor.process(false, entity, vertxContext, asyncResultHandler, bulkSize);
+          load.run();
         }
 
       } finally {
@@ -155,6 +372,15 @@ public class LoaderAPI implements LoadResource {
     });
   }
 
+  private static boolean validIdStrategy(Handler<AsyncResult<Response>> asyncResultHandler, String idStrategy) {
+    if (IdStrategy.of(idStrategy) == null) {
+      asyncResultHandler.handle(io.vertx.core.Future.succeededFuture(
+        PostLoadMarcDataResponse.withPlainBadRequest("unknown idStrategy: " + idStrategy)));
+      return false;
+    }
+    return true;
+  }
+
   private boolean validRequest(Handler<AsyncResult<Response>> asyncResultHandler, Map<String, String> okapiHeaders){
     String tenantId = TenantTool.calculateTenantId(
       okapiHeaders.get(ClientGenerator.OKAPI_HEADER_TENANT));
@@ -189,85 +415,7 @@ public class LoaderAPI implements LoadResource {
    */
   static boolean buildObject(Object object, String[] path, boolean newComp, Object val,
                              Object[] complexPreviouslyCreated) {
-    Class<?> type;
-    for (String pathSegment : path) {
-      try {
-        Field field = object.getClass().getDeclaredField(pathSegment);
-        type = field.getType();
-        if (type.isAssignableFrom(List.class) || type.isAssignableFrom(java.util.Set.class)) {
-
-          Method method = object.getClass().getMethod(columnNametoCamelCaseWithget(pathSegment));
-          Collection<Object> coll = setColl(method, object);
-          ParameterizedType listType = (ParameterizedType) field.getGenericType();
-          Class<?> listTypeClass = (Class<?>) listType.getActualTypeArguments()[0];
-          if (isPrimitiveOrPrimitiveWrapperOrString(listTypeClass)) {
-            coll.add(val);
-          } else {
-            object = setObjectCorrectly(newComp, listTypeClass, type, pathSegment, coll, object, complexPreviouslyCreated[0]);
-            complexPreviouslyCreated[0] = object;
-          }
-        } else if (!isPrimitiveOrPrimitiveWrapperOrString(type)) {
-
-          //currently not needed for instances, may be needed in the future
-          //non primitive member in instance object but represented as a list or set of non
-          //primitive objects
-          Method method = object.getClass().getMethod(columnNametoCamelCaseWithget(pathSegment));
-          object = method.invoke(object);
-        } else { // primitive
-          object.getClass().getMethod(columnNametoCamelCaseWithset(pathSegment),
-            val.getClass()).invoke(object, val);
-        }
-      } catch (Exception e) {
-        LOGGER.error(e.getMessage(), e);
-        return false;
-      }
-    }
-    return true;
-  }
-
-  private static Object setObjectCorrectly(boolean newComp, Class<?> listTypeClass, Class<?> type, String pathSegment,
-                                           Collection<Object> coll, Object object, Object complexPreviouslyCreated)
-    throws IllegalAccessException, InstantiationException, NoSuchMethodException, InvocationTargetException {
-
-    if (newComp) {
-      Object o = listTypeClass.newInstance();
-      coll.add(o);
-      object.getClass().getMethod(columnNametoCamelCaseWithset(pathSegment), type).invoke(object, coll);
-      return o;
-    } else if ((complexPreviouslyCreated != null) &&
-      (complexPreviouslyCreated.getClass().isAssignableFrom(listTypeClass))) {
-      return complexPreviouslyCreated;
-    }
-    return object;
-  }
-
-  private static Collection<Object> setColl(Method method, Object object) throws InvocationTargetException,
-    IllegalAccessException {
-    return ((Collection<Object>) method.invoke(object));
-  }
-
-  private static String columnNametoCamelCaseWithset(String str) {
-    StringBuilder sb = new StringBuilder(str);
-    sb.replace(0, 1, String.valueOf(Character.toUpperCase(sb.charAt(0))));
-    for (int i = 0; i < sb.length(); i++) {
-      if (sb.charAt(i) == '_') {
-        sb.deleteCharAt(i);
-        sb.replace(i, i + 1, String.valueOf(Character.toUpperCase(sb.charAt(i))));
-      }
-    }
-    return "set" + sb.toString();
-  }
-
-  private static String columnNametoCamelCaseWithget(String str) {
-    StringBuilder sb = new StringBuilder(str);
-    sb.replace(0, 1, String.valueOf(Character.toUpperCase(sb.charAt(0))));
-    for (int i = 0; i < sb.length(); i++) {
-      if (sb.charAt(i) == '_') {
-        sb.deleteCharAt(i);
-        sb.replace(i, i + 1, String.valueOf(Character.toUpperCase(sb.charAt(i))));
-      }
-    }
-    return "get" + sb.toString();
+    return PathAccessor.of(object.getClass(), path).set(object, newComp, val, complexPreviouslyCreated);
   }
 
   @Validate
@@ -1,6 +1,11 @@
 package org.folio.rest.impl;
 
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import com.google.common.base.Splitter;
 
@@ -13,6 +18,13 @@ public class NormalizationFunctions {
   private static final String REMOVE_ENDING_PUNC = "remove_ending_punc";
   private static final String TRIM = "trim";
   private static final String TRIM_PERIOD = "trim_period";
+  private static final String REGEX_REPLACE = "regex_replace";
+  private static final String REGEX_EXTRACT = "regex_extract";
+  private static final String REGEX_MATCH = "regex_match";
+  private static final String LOWERCASE = "lowercase";
+  private static final String UPPERCASE = "uppercase";
+  private static final String SUBSTRING_BEFORE = "substring_before";
+  private static final String SUBSTRING_AFTER = "substring_after";
   private static final String SPLIT_FUNCTION_SPLIT_EVERY = "split_every";
   private static final String PUNCT_2_REMOVE = ";:,/+= ";
 
@@ -20,6 +32,158 @@ public class NormalizationFunctions {
     throw new UnsupportedOperationException("Cannot instantiate utility class.");
   }
 
+  /**
+   * The functions that can be declared in a condition's "type", resolved once when the rules are compiled.
+   * Each function is bound to its implementation, running it is a virtual call and not a lookup by name.
+   */
+  public enum Function {
+    CHAR_SELECT(NormalizationFunctions.CHAR_SELECT) {
+      @Override
+      String apply(String val, Parameter parameter) {
+        return charSelect(val, parameter.range);
+      }
+    },
+    REMOVE_ENDING_PUNC(NormalizationFunctions.REMOVE_ENDING_PUNC) {
+      @Override
+      String apply(String val, Parameter parameter) {
+        return removeEndingPunc(val);
+      }
+    },
+    TRIM(NormalizationFunctions.TRIM) {
+      @Override
+      String apply(String val, Parameter parameter) {
+        return val.trim();
+      }
+    },
+    TRIM_PERIOD(NormalizationFunctions.TRIM_PERIOD) {
+      @Override
+      String apply(String val, Parameter parameter) {
+        return trimPeriod(val);
+      }
+    },
+    REGEX_REPLACE(NormalizationFunctions.REGEX_REPLACE) {
+      @Override
+      String apply(String val, Parameter parameter) {
+        return parameter.pattern == null ? val : parameter.pattern.matcher(val).replaceAll(parameter.replacement);
+      }
+    },
+    REGEX_EXTRACT(NormalizationFunctions.REGEX_EXTRACT) {
+      @Override
+      String apply(String val, Parameter parameter) {
+        return parameter.pattern == null ? val : regexExtract(val, parameter.pattern);
+      }
+    },
+    REGEX_MATCH(NormalizationFunctions.REGEX_MATCH) {
+      @Override
+      String apply(String val, Parameter parameter) {
+        return parameter.pattern == null || parameter.pattern.matcher(val).find() ? val : null;
+      }
+    },
+    LOWERCASE(NormalizationFunctions.LOWERCASE) {
+      @Override
+      String apply(String val, Parameter parameter) {
+        return val.toLowerCase(Locale.ROOT);
+      }
+    },
+    UPPERCASE(NormalizationFunctions.UPPERCASE) {
+      @Override
+      String apply(String val, Parameter parameter) {
+        return val.toUpperCase(Locale.ROOT);
+      }
+    },
+    SUBSTRING_BEFORE(NormalizationFunctions.SUBSTRING_BEFORE) {
+      @Override
+      String apply(String val, Parameter parameter) {
+        return substringBefore(val, parameter.value);
+      }
+    },
+    SUBSTRING_AFTER(NormalizationFunctions.SUBSTRING_AFTER) {
+      @Override
+      String apply(String val, Parameter parameter) {
+        return substringAfter(val, parameter.value);
+      }
+    },
+    //run by the script engine, see RecordMapper
+    CUSTOM("custom") {
+      @Override
+      String apply(String val, Parameter parameter) {
+        return "";
+      }
+    };
+
+    private static final Map<String, Function> BY_NAME = new HashMap<>();
+
+    static {
+      for (Function function : values()) {
+        BY_NAME.put(function.functionName, function);
+      }
+    }
+
+    private final String functionName;
+
+    Function(String functionName) {
+      this.functionName = functionName;
+    }
+
+    abstract String apply(String val, Parameter parameter);
+
+    /**
+     * @return the function declared as name, null if there is no such function
+     */
+    public static Function of(String name) {
+      return BY_NAME.get(name);
+    }
+
+    /**
+     * @return true if the parameter of this function is a regular expression
+     */
+    public boolean isRegex() {
+      return this == REGEX_REPLACE || this == REGEX_EXTRACT || this == REGEX_MATCH;
+    }
+  }
+
+  /**
+   * The parameter of a condition's functions, parsed once when the rules are compiled: the char_select
+   * range and the compiled regular expression. Immutable.
+   */
+  public static final class Parameter {
+
+    private final String value;
+    private final int[] range;
+    private final Pattern pattern;
+    private final String replacement;
+
+    /**
+     * @param value - the parameter as declared, may be null
+     * @param pattern - the compiled value if a function is a regex function, null otherwise
+     * @param replacement - the replacement of regex_replace, may refer to groups as $1
+     */
+    public Parameter(String value, Pattern pattern, String replacement) {
+      this.value = value;
+      this.range = charSelectRange(value);
+      this.pattern = pattern;
+      this.replacement = replacement == null ? "" : replacement;
+    }
+
+    public String getValue() {
+      return value;
+    }
+
+    /**
+     * @return the compiled regular expression, null if no function is a regex function
+     */
+    public Pattern getPattern() {
+      return pattern;
+    }
+
+    /**
+     * @return the replacement of a regex_replace function, an empty string if none is declared
+     */
+    public String getReplacement() {
+      return replacement;
+    }
+  }
+
   /**
    * Split val into chunks of param characters if funcName is "split_every".
    * Return null if val is null or funcName is not "split_every".
@@ -40,39 +204,101 @@ public class NormalizationFunctions {
    * @return the function's result
    */
   public static String runFunction(String funcName, String val, String param){
-    if(val == null){
+    return runFunction(Function.of(funcName), val, param);
+  }
+
+  /**
+   * Run the resolved function on val and param. The parameter is parsed on every call, rules use the
+   * parameter parsed with the rule instead.
+   * @return the function's result, an empty string if function is null
+   */
+  public static String runFunction(Function function, String val, String param){
+    Pattern pattern = function != null && function.isRegex() && param != null ? Pattern.compile(param) : null;
+    return runFunction(function, val, new Parameter(param, pattern, null));
+  }
+
+  /**
+   * Run the resolved function on val and the parsed parameter.
+   * @return the function's result, an empty string if function is null, null if the function is
+   * regex_match and val does not match. A regex function without a pattern returns val as is
+   */
+  public static String runFunction(Function function, String val, Parameter parameter){
+    if(val == null || function == null){
       return "";
     }
-    if(CHAR_SELECT.equals(funcName)){
-      return charSelect(val, param);
-    }
-    else if(REMOVE_ENDING_PUNC.equals(funcName)){
-      return removeEndingPunc(val);
+    return function.apply(val, parameter);
+  }
+
+  /**
+   * @return the first match of the pattern - its first group if it has groups - or an empty string
+   */
+  private static String regexExtract(String val, Pattern pattern) {
+    Matcher matcher = pattern.matcher(val);
+    if (!matcher.find()) {
+      return "";
     }
-    else if(TRIM.equals(funcName)){
-      return val.trim();
+    String match = matcher.groupCount() > 0 ? matcher.group(1) : matcher.group();
+    return match == null ? "" : match;
+  }
+
+  /**
+   * @return the data before the first occurrence of the separator, all of it if there is none
+   */
+  private static String substringBefore(String val, String separator) {
+    if (separator == null || separator.isEmpty()) {
+      return val;
     }
-    else if(TRIM_PERIOD.equals(funcName)){
-      return trimPeriod(val);
+    int pos = val.indexOf(separator);
+    return pos < 0 ? val : val.substring(0, pos);
+  }
+
+  /**
+   * @return the data after the first occurrence of the separator, an empty string if there is none
+   */
+  private static String substringAfter(String val, String separator) {
+    if (separator == null || separator.isEmpty()) {
+      return val;
     }
-    return "";
+    int pos = val.indexOf(separator);
+    return pos < 0 ? "" : val.substring(pos + separator.length());
   }
 
   private static Iterator<String> splitEvery(String val, String param) {
     return Splitter.fixedLength(Integer.parseInt(param)).split(val).iterator();
   }
 
-  private static String charSelect(String val, String pos){
+  private static String charSelect(String val, int[] range){
+    if(range == null || range[1] > val.length()){
+      return val;
+    }
+    return val.substring(range[0], range[1]);
+  }
+
+  /**
+   * Parse the parameter of char_select - a position or an inclusive range of positions like 35-37.
+   * char_select returns all of the data if the parameter is invalid or the range exceeds the data.
+   * @return the begin and end (exclusive) index of the selected chars, null if pos is invalid
+   */
+  public static int[] charSelectRange(String pos){
     try{
+      int begin;
+      int end;
       if(pos.contains("-")){
         String []range = pos.split("-");
-        return val.substring(Integer.parseInt(range[0]), Integer.parseInt(range[1])+1);
+        begin = Integer.parseInt(range[0]);
+        end = Integer.parseInt(range[1])+1;
       }
-      int p = Integer.parseInt(pos);
-      return val.substring(p,p+1);
+      else {
+        begin = Integer.parseInt(pos);
+        end = begin+1;
+      }
+      if(begin < 0 || end < begin){
+        return null;
+      }
+      return new int[] {begin, end};
     }
     catch(Exception e){
-      return val;
+      return null;
     }
   }
 
@@ -1,6 +1,5 @@
 package org.folio.rest.impl;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Context;
 import io.vertx.core.Future;
@@ -8,38 +7,46 @@ import io.vertx.core.Handler;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import org.apache.commons.io.IOUtils;
-import org.apache.commons.lang.BooleanUtils;
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
-import org.folio.rest.javascript.JSManager;
-import org.folio.rest.jaxrs.model.Instance;
+import org.folio.rest.id.IdGenerator;
+import org.folio.rest.id.IdStrategy;
 import org.folio.rest.jaxrs.resource.LoadResource;
+import org.folio.rest.marc.MarcRecordReader;
 import org.folio.rest.model.SourceRecord;
+import org.folio.rest.rules.MappingPlan;
 import org.folio.rest.service.LoaderHelper;
-import org.folio.rest.service.ProcessorHelper;
-import org.folio.rest.struct.ProcessedSinglePlusConditionCheck;
-import org.folio.rest.struct.ProcessedSingleItem;
+import org.folio.rest.service.MappedMarcFile;
+import org.folio.rest.struct.BatchStatistics;
+import org.folio.rest.struct.ByteBuilder;
+import org.folio.rest.struct.LoadMetrics;
+import org.folio.rest.struct.MappedChunk;
+import org.folio.rest.struct.SqlBatch;
 import org.folio.rest.tools.ClientGenerator;
-import org.folio.rest.tools.utils.ObjectMapperTool;
 import org.folio.rest.tools.utils.TenantTool;
 import org.folio.rest.utils.Escaper;
 import org.folio.rest.validate.JsonValidator;
 import org.folio.util.IoUtil;
-import org.marc4j.MarcJsonWriter;
-import org.marc4j.MarcStreamReader;
-import org.marc4j.marc.*;
-import org.marc4j.marc.impl.SubfieldImpl;
 
-import javax.script.ScriptException;
 import javax.ws.rs.core.Response;
 import java.io.*;
-import java.lang.reflect.Field;
-import java.lang.reflect.ParameterizedType;
+import java.nio.ByteBuffer;
 import java.util.*;
-import java.util.stream.Collectors;
-
-import static org.folio.rest.service.LoaderHelper.isMappingValid;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 
 class Processor {
@@ -48,38 +55,54 @@ class Processor {
   private static final String IMPORT_URL = "/admin/importSQL";
   private static final String RECORD = "record";
   private static final String VALUES = "values";
-  private static final String VALUE = "value";
-  private static final String CUSTOM = "custom";
   private static final String TYPE = "type";
 
-  private int processedCount;
-  private StringBuilder importSQLStatementInstance = new StringBuilder();
-  private StringBuilder importSQLStatementSource = new StringBuilder();
+  // records handed to a mapping thread at a time
+  private static final int CHUNK_SIZE = 500;
+  // chunks read ahead of the upload stage per mapping thread, bounds the memory held by a job
+  private static final int QUEUED_CHUNKS_PER_THREAD = 2;
+  static final String CANCELLED = "cancelled";
+  private static final MappedChunk END_OF_INPUT = new MappedChunk(0);
+  // batches uploading while the next one is being filled
+  private static final int MAX_IN_FLIGHT_BATCHES = 1;
+  // the longest wait for the threads decoding a spooled file before it is unmapped
+  private static final long FILE_READERS_TIMEOUT_SECONDS = 60;
+
+  private volatile int processedCount;
+  private final LongAdder mappedCount = new LongAdder();
+  private volatile long uploadedCount;
+  private final AtomicInteger batchesInFlight = new AtomicInteger();
+  //positions of the records that could not be mapped, read while the job runs
+  private final StringBuffer unprocessed = new StringBuffer();
+  private volatile boolean cancelled;
+  private SqlBatch batch = new SqlBatch();
+  private BlockingQueue<SqlBatch> freeBatches;
+  private ExecutorService uploader;
+  private volatile String uploadError;
   private int counter;
   private int bulkSize;
-  private JsonObject rulesFile;
+  private long batchBytes;
+  private long batchMaxMillis;
+  private long batchStart;
+  private final BatchStatistics batchStatistics = new BatchStatistics();
+  private LoadMetrics metrics = new LoadMetrics();
+  private int mappingThreads;
+  private boolean fileBacked;
+  private int shards = 1;
+  private int[] shardRecords;
+  private long[] shardNanos;
+  private MappingPlan mappingPlan;
   private String tenantId;
   private Map<String, String> okapiHeaders;
   private String url;
   private boolean storeSource;
   private boolean isTest;
   private String fixedGeneralInstanceId;
-  private String instancePostQuery;
-  private String sourcePostQuery;
-
-  private Leader leader;
-  private String separator; //separator between subfields with different delimiters
-  private JsonArray delimiters;
-  private Instance instance;
-  private SourceRecord sourceRecord;
+  private IdStrategy idStrategy = IdStrategy.TIME_ORDERED;
+
+  // the last chunk with mapped records, its last source line is only decoded on request
+  private volatile MappedChunk lastSourceChunk;
   private Requester requester;
-  private JsonArray rules;
-  private boolean createNewComplexObj;
-  private boolean entityRequested;
-  private boolean entityRequestedPerRepeatedSubfield;
-  private final List<StringBuilder> buffers2concat = new ArrayList<>();
-  private final Map<String, StringBuilder> subField2Data = new HashMap<>();
-  private final Map<String, String> subField2Delimiter = new HashMap<>();
 
   /**
    * @param fixedGeneralInstanceId - usually set to null, it's there for testing purposes where a fixed id is required
@@ -89,7 +112,10 @@ class Processor {
             String fixedGeneralInstanceId) {
     this.okapiHeaders = okapiHeaders;
     this.tenantId = tenantId;
-    this.rulesFile = LoaderAPI.TENANT_RULES_MAP.get(tenantId);
+    this.mappingPlan = LoaderAPI.TENANT_MAPPING_PLAN_MAP.get(tenantId);
+    if (tenantId != null) {
+      this.metrics = new LoadMetrics(LoaderAPI.tenantMetrics(tenantId));
+    }
     this.requester = requester;
     this.storeSource = storeSource;
     this.fixedGeneralInstanceId = fixedGeneralInstanceId;
@@ -98,73 +124,151 @@ class Processor {
   Processor(Processor original) {
     this.okapiHeaders = original.okapiHeaders;
     this.tenantId = original.tenantId;
-    this.rulesFile = original.rulesFile;
+    this.mappingPlan = original.mappingPlan;
     this.requester = original.requester;
     this.storeSource = original.storeSource;
     this.fixedGeneralInstanceId = original.fixedGeneralInstanceId;
+    this.idStrategy = original.idStrategy;
+    this.mappingThreads = original.mappingThreads;
+    if (tenantId != null) {
+      this.metrics = new LoadMetrics(LoaderAPI.tenantMetrics(tenantId));
+    }
   }
 
   void setRulesFile(JsonObject rulesFile) {
-    this.rulesFile = rulesFile;
+    this.mappingPlan = MappingPlan.compile(rulesFile);
   }
 
   void setUrl(String url) {
     this.url = url;
   }
 
-  String getInstancePostQuery() {
-    return instancePostQuery;
+  /**
+   * @param idStrategy - how the instance ids are generated, ignored if a fixed id is set
+   */
+  void setIdStrategy(IdStrategy idStrategy) {
+    this.idStrategy = idStrategy;
   }
 
-  String getSourcePostQuery() {
-    return sourcePostQuery;
+  /**
+   * @param mappingThreads - amount of threads mapping records in parallel, 0 to use one per available core
+   */
+  void setMappingThreads(int mappingThreads) {
+    this.mappingThreads = mappingThreads;
   }
 
-  SourceRecord getSourceRecord() {
-    return sourceRecord;
+  /**
+   * @param fileBacked - spool the uploaded file to local disk and let the mapping threads decode the records
+   *                   from the memory mapped file, instead of parsing the stream on the reader thread
+   */
+  void setFileBacked(boolean fileBacked) {
+    this.fileBacked = fileBacked;
   }
 
-  void process(boolean isTest, InputStream entity, Context vertxContext,
-               Handler<AsyncResult<Response>> asyncResultHandler, int bulkSize){
+  /**
+   * @param shards - split the file into this amount of consecutive ranges of records, each mapped by its own
+   *               thread and mapper. more than 1 implies file backed mode
+   */
+  void setShards(int shards) {
+    this.shards = Math.max(1, shards);
+  }
 
-    this.isTest = isTest;
-    this.bulkSize = bulkSize;
-    long start = System.currentTimeMillis();
+  /**
+   * flush a batch before bulkSize records are reached if one of these limits is reached first
+   * @param batchBytes - size of a batch (instance and source statements), 0 for no limit
+   * @param batchMaxMillis - time since the first record was added to a batch, 0 for no limit
+   */
+  void setBatchLimits(long batchBytes, long batchMaxMillis) {
+    this.batchBytes = batchBytes;
+    this.batchMaxMillis = batchMaxMillis;
+  }
 
-    vertxContext.owner().executeBlocking( block -> {
+  /**
+   * stop the load before the next chunk is batched, batches not yet uploaded are dropped
+   */
+  void cancel() {
+    cancelled = true;
+  }
 
-      LOGGER.info("REQUEST ID " + UUID.randomUUID().toString());
-      try {
+  boolean isCancelled() {
+    return cancelled;
+  }
 
-        final MarcStreamReader reader = new MarcStreamReader(entity);
-        StringBuilder unprocessed = new StringBuilder();
+  /**
+   * @return the records read from the uploaded file so far
+   */
+  int getRecordsRead() {
+    return processedCount;
+  }
 
-        while (reader.hasNext()) {
-          processSingleEntry(reader, block, unprocessed);
-        }
+  /**
+   * @return the records mapped so far, in any order
+   */
+  long getRecordsMapped() {
+    return mappedCount.sum();
+  }
 
-        instance = null;
-        String error = managePushToDB(true);
+  /**
+   * @return the records of the batches uploaded so far
+   */
+  long getRecordsUploaded() {
+    return uploadedCount;
+  }
 
-        if(error != null){
-          block.fail(new Exception(error));
-          return;
-        }
+  int getBatchesInFlight() {
+    return batchesInFlight.get();
+  }
 
-        long end = System.currentTimeMillis();
-        LOGGER.info("inserted " + processedCount + " in " + (end - start)/1000 + " seconds" );
-        block.complete("Received count: " + processedCount + ", errors: " + unprocessed.toString());
+  /**
+   * @return the time spent per stage and the batch sizes of this load so far
+   */
+  LoadMetrics getMetrics() {
+    return metrics;
+  }
 
-      } catch(Exception e){
-        block.fail(e);
-      } finally {
-        LoaderHelper.closeInputStream(entity);
-      }
-    }, false, whenDone -> {
+  /**
+   * @return the positions of the records that could not be mapped so far, as "#position " each
+   */
+  String getUnprocessed() {
+    return unprocessed.toString();
+  }
+
+  /**
+   * @return the source of the last loaded record, parsed back from its COPY line - null if source
+   * records are not stored
+   */
+  SourceRecord getSourceRecord() {
+    MappedChunk chunk = lastSourceChunk;
+    String sourceLine = chunk == null ? null : chunk.getLastSourceLine();
+    if (sourceLine == null) {
+      return null;
+    }
+    String line = Escaper.unescapeSqlCopyFrom(sourceLine.trim());
+    int separator = line.indexOf('|');
+    return new SourceRecord(line.substring(0, separator), new JsonObject(line.substring(separator + 1)));
+  }
+
+  /**
+   * The records are processed in stages: a reader thread parses the marc file and hands chunks of records
+   * to a pool of mapping threads, which map and serialize them to COPY lines. The chunk futures are queued
+   * in file order in a bounded queue (the reader blocks when the upload stage falls behind), and the
+   * blocking thread drains that queue, batching the lines - so the content of each batch is the same
+   * regardless of the amount of mapping threads. A full batch is handed to an uploader thread and the
+   * next batch is filled while it uploads.
+   * In file backed mode the upload is first spooled to disk and indexed, the reader then only hands
+   * ranges of record positions to the mapping threads, which decode the records themselves.
+   * When sharded, the indexed file is split into consecutive shards, each one decoded and mapped by its own
+   * thread into its own queue, and the upload stage takes one chunk from each shard in turn - so the content
+   * of each batch depends on the amount of shards, but not on timing.
+   */
+  void process(boolean isTest, InputStream entity, Context vertxContext,
+               Handler<AsyncResult<Response>> asyncResultHandler, int bulkSize){
+
+    boolean admitted = load(isTest, entity, vertxContext, bulkSize, whenDone -> {
       if (whenDone.succeeded()) {
         if (isTest) {
           asyncResultHandler.handle(io.vertx.core.Future.succeededFuture(
-            LoadResource.PostLoadMarcDataTestResponse.withPlainCreated(importSQLStatementInstance.toString())));
+            LoadResource.PostLoadMarcDataTestResponse.withPlainCreated(batch.getInstances().toString())));
         } else {
           asyncResultHandler.handle(io.vertx.core.Future.succeededFuture(
             LoadResource.PostLoadMarcDataResponse.withCreated(whenDone.result().toString())));
@@ -177,650 +281,511 @@ class Processor {
             processedCount + ". " + whenDone.cause().getMessage())));
       }
     });
-  }
-
-  private void processSingleEntry(MarcStreamReader reader, Future<Object> block, StringBuilder unprocessed) {
-
-    try {
-      processedCount++;
-      Record record = reader.next();
-      leader = record.getLeader();
-      instance = new Instance();
-
-      processControlFieldSection(record.getControlFields().iterator());
-      processDataFieldSection(record.getDataFields().iterator());
-
-      if (storeSource) {
-        setSourceRecord(instance.getId(), record);
-      }
-
-      if (fixedGeneralInstanceId != null) {
-        instance.setId(fixedGeneralInstanceId);
-        sourceRecord.setId(fixedGeneralInstanceId);
-      }
-
-      String error = managePushToDB(false);
-      if (error != null) {
-        block.fail(new Exception(error));
-      }
-    } catch (Exception e) {
-      unprocessed.append("#").append(processedCount).append(" ");
-      LOGGER.error(e.getMessage(), e);
-    }
-  }
-
-  private void setSourceRecord(String id, Record record) {
-
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
-    MarcJsonWriter marcJsonWriter = new MarcJsonWriter(baos);
-    marcJsonWriter.write(record);
-    marcJsonWriter.close();
-    String recordSourceAsJson = baos.toString();
-    sourceRecord = new SourceRecord(id, new JsonObject(recordSourceAsJson));
-  }
-
-  private void processDataFieldSection(Iterator<DataField> dfIter) throws IllegalAccessException, ScriptException,
-    InstantiationException {
-
-    while (dfIter.hasNext()) {
-      handleRecordDataFieldByField(dfIter);
-    }
-  }
-
-  private void handleRecordDataFieldByField(Iterator<DataField> dfIter) throws ScriptException, IllegalAccessException,
-    InstantiationException {
-
-    createNewComplexObj = true; // each rule will generate a new instance in an array , for an array data member
-    Object[] rememberComplexObj = new Object[] { null };
-    DataField dataField = dfIter.next();
-    JsonArray mappingEntry = rulesFile.getJsonArray(dataField.getTag());
-    if (mappingEntry == null) {
-      return;
-    }
-
-    //there is a mapping associated with this marc field
-    for (int i = 0; i < mappingEntry.size(); i++) {
-
-      //there could be multiple mapping entries, specifically different mappings
-      //per subfield in the marc field
-      JsonObject subFieldMapping = mappingEntry.getJsonObject(i);
-      processSubFieldMapping(subFieldMapping, rememberComplexObj, dataField);
+    if (!admitted) {
+      asyncResultHandler.handle(io.vertx.core.Future.succeededFuture(
+        LoadResource.PostLoadMarcDataResponse.withPlainServiceUnavailable(LoadExecutor.BUSY)));
     }
   }
 
-  private void processSubFieldMapping(JsonObject subFieldMapping, Object[] rememberComplexObj, DataField dataField)
-    throws IllegalAccessException, InstantiationException, ScriptException {
-
-    //a single mapping entry can also map multiple subfields to a specific field in the instance
-    JsonArray instanceField = subFieldMapping.getJsonArray("entity");
-
-    //entity field indicates that the subfields within the entity definition should be
-    //a single instance, anything outside the entity definition will be placed in another
-    //instance of the same type, unless the target points to a different type.
-    //multiple entities can be declared in a field, meaning each entity will be a new instance
-    //with the subfields defined in a single entity grouped as a single instance.
-    //all definitions not enclosed within the entity will be associated with anothe single instance
-    entityRequested = false;
-
-    //for repeatable subfields, you can indicate that each repeated subfield should respect
-    //the new instance declaration and create a new instance. so that if there are two "a" subfields
-    //each one will create its own instance
-    entityRequestedPerRepeatedSubfield = BooleanUtils.isTrue(subFieldMapping.getBoolean(
-      "entityPerRepeatedSubfield"));
-
-    //if no "entity" is defined , then all rules contents of the field getting mapped to the same type
-    //will be placed in a single instance of that type.
-    if (instanceField == null) {
-      instanceField = new JsonArray();
-      instanceField.add(subFieldMapping);
-    } else {
-      entityRequested = true;
-    }
-
-    List<Object[]> arraysOfObjects = new ArrayList<>();
-    for (int i = 0; i < instanceField.size(); i++) {
-      JsonObject jObj = instanceField.getJsonObject(i);
-      handleInstanceFields(jObj, arraysOfObjects, dataField, rememberComplexObj);
-    }
-
-    if (entityRequested) {
-      createNewComplexObj = true;
-    }
-  }
-
-  private void handleInstanceFields(JsonObject jObj, List<Object[]> arraysOfObjects,
-                                    DataField dataField, Object[] rememberComplexObj)
-    throws ScriptException, IllegalAccessException, InstantiationException {
-
-    //push into a set so that we can do a lookup for each subfield in the marc instead
-    //of looping over the array
-    Set<String> subFieldsSet = jObj.getJsonArray("subfield").stream()
-      .filter(o -> o instanceof String)
-      .map(o -> (String) o)
-      .collect(Collectors.toCollection(HashSet::new));
-
-    //it can be a one to one mapping, or there could be rules to apply prior to the mapping
-    rules = jObj.getJsonArray("rules");
-
-    // see ### Delimiters in README.md (section Processor.java)
-    delimiters = jObj.getJsonArray("subFieldDelimiter");
-
-    //this is a map of each subfield to the delimiter to delimit it with
-    subField2Delimiter.clear();
-
-    //should we run rules on each subfield value independently or on the entire concatenated
-    //string, not relevant for non repeatable single subfield declarations or entity declarations
-    //with only one non repeatable subfield
-    boolean applyPost = false;
-
-    if (jObj.getBoolean("applyRulesOnConcatenatedData") != null) {
-      applyPost = jObj.getBoolean("applyRulesOnConcatenatedData");
-    }
+  /**
+   * run the load on a thread of the marc or test {@link LoadExecutor}, see
+   * {@link #process(boolean, InputStream, Context, Handler, int)}
+   * @param whenDone - called with the summary of the load, or its failure
+   * @return false if the executor is full, the load is not run and whenDone is not called
+   */
+  boolean load(boolean isTest, InputStream entity, Context vertxContext, int bulkSize,
+            Handler<AsyncResult<Object>> whenDone) {
 
-    //map a subfield to a stringbuilder which will hold its content
-    //since subfields can be concatenated into the same stringbuilder
-    //the map of different subfields can map to the same stringbuilder reference
-    subField2Data.clear();
+    this.isTest = isTest;
+    this.bulkSize = bulkSize;
+    long start = System.currentTimeMillis();
 
-    //keeps a reference to the stringbuilders that contain the data of the
-    //subfield sets. this list is then iterated over and used to delimit subfield sets
-    buffers2concat.clear();
+    LoadExecutor executor = isTest ? LoadExecutor.TEST : LoadExecutor.MARC;
+    boolean admitted = executor.execute(vertxContext.owner(), block -> {
 
-    handleDelimiters();
+      LOGGER.info("REQUEST ID " + UUID.randomUUID().toString());
+      int threads = mappingThreads > 0 ? mappingThreads : Runtime.getRuntime().availableProcessors();
+      if (shards > 1) {
+        threads = shards;
+      }
+      ExecutorService mappers = Executors.newFixedThreadPool(threads, threadFactory("marc-mapper"));
+      ExecutorService reader = Executors.newSingleThreadExecutor(threadFactory("marc-reader"));
+      uploader = Executors.newSingleThreadExecutor(threadFactory("marc-uploader"));
+      MappedMarcFile file = null;
+      try {
 
-    String[] embeddedFields = jObj.getString("target").split("\\.");
-    if (!isMappingValid(instance, embeddedFields)) {
-      LOGGER.debug("bad mapping " + jObj.encode());
-      return;
-    }
+        freeBatches = new ArrayBlockingQueue<>(MAX_IN_FLIGHT_BATCHES);
+        for (int i = 0; i < MAX_IN_FLIGHT_BATCHES; i++) {
+          freeBatches.add(new SqlBatch());
+        }
 
-    //iterate over the subfields in the mapping entry
-    List<Subfield> subFields = dataField.getSubfields();
+        List<BlockingQueue<CompletableFuture<MappedChunk>>> queues = new ArrayList<>();
+        if (fileBacked || shards > 1) {
+          file = MappedMarcFile.spool(entity);
+          LOGGER.info("spooled " + file.size() + " records in " + (System.currentTimeMillis() - start) + " ms");
+        }
+        if (shards > 1) {
+          processedCount = file.size();
+          shardRecords = new int[shards];
+          shardNanos = new long[shards];
+          for (int shard = 0; shard < shards; shard++) {
+            BlockingQueue<CompletableFuture<MappedChunk>> chunks = new ArrayBlockingQueue<>(QUEUED_CHUNKS_PER_THREAD);
+            queues.add(chunks);
+            int index = shard;
+            int from = (int) ((long) file.size() * shard / shards);
+            int to = (int) ((long) file.size() * (shard + 1) / shards);
+            MappedMarcFile indexed = file;
+            mappers.execute(() -> mapShard(indexed, index, from, to, chunks));
+          }
+        } else {
+          BlockingQueue<CompletableFuture<MappedChunk>> chunks =
+            new ArrayBlockingQueue<>(threads * QUEUED_CHUNKS_PER_THREAD);
+          queues.add(chunks);
+          ThreadLocal<RecordMapper> recordMappers =
+            ThreadLocal.withInitial(this::newRecordMapper);
+          if (file != null) {
+            MappedMarcFile indexed = file;
+            reader.execute(() -> readIndexedChunks(indexed, mappers, recordMappers, chunks));
+          } else {
+            reader.execute(() -> readChunks(entity, mappers, recordMappers, chunks));
+          }
+        }
 
-    //check if we need to expand the subfields into additional subfields
-    JsonObject splitter = jObj.getJsonObject("subFieldSplit");
-    if (splitter != null) {
-      expandSubfields(subFields, splitter);
-    }
+        String error = uploadChunks(queues);
 
-    for (int i = 0; i < subFields.size(); i++) {
-      handleSubFields(subFields, i, subFieldsSet, arraysOfObjects, applyPost, embeddedFields);
-    }
+        if(error != null){
+          block.fail(new Exception(error));
+          return;
+        }
 
-    if (!(entityRequestedPerRepeatedSubfield && entityRequested)) {
+        long end = System.currentTimeMillis();
+        LOGGER.info("inserted " + processedCount + " in " + (end - start)/1000 + " seconds" );
+        block.complete("Received count: " + processedCount + ", errors: " + unprocessed
+          + ", " + batchStatistics + shardSummary());
 
-      String completeData = generateDataString();
-      if (applyPost) {
-        completeData = processRules(completeData);
-      }
-      if (createNewObject(embeddedFields, completeData, rememberComplexObj)) {
-        createNewComplexObj = false;
+      } catch (ExecutionException e) {
+        block.fail(e.getCause());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        block.fail(e);
+      } catch(Exception e){
+        block.fail(e);
+      } finally {
+        reader.shutdownNow();
+        mappers.shutdownNow();
+        uploader.shutdownNow();
+        LoaderHelper.closeInputStream(entity);
+        if (file != null) {
+          closeFile(file, reader, mappers);
+        }
       }
+    }, whenDone);
+    if (!admitted) {
+      LoaderHelper.closeInputStream(entity);
     }
-    instance.setId(UUID.randomUUID().toString());
+    return admitted;
   }
 
-  private void handleSubFields(List<Subfield> subFields, int subFieldsIndex, Set<String> subFieldsSet,
-                               List<Object[]> arraysOfObjects, boolean applyPost, String[] embeddedFields) {
-
-    String data = subFields.get(subFieldsIndex).getData();
-    char sub1 = subFields.get(subFieldsIndex).getCode();
-    String subfield = String.valueOf(sub1);
-    if (!subFieldsSet.contains(subfield)) {
-      return;
-    }
-
-    //rule file contains a rule for this subfield
-    if (arraysOfObjects.size() <= subFieldsIndex) {
-      temporarilySaveObjectsWithMultipleFields(arraysOfObjects, subFieldsIndex);
-    }
-
-    if (!applyPost) {
-
-      //apply rule on the per subfield data. if applyPost is set to true, we need
-      //to wait and run this after all the data associated with this target has been
-      //concatenated , therefore this can only be done in the createNewObject function
-      //which has the full set of subfield data
-      data = processRules(data);
-    }
-
-    if (delimiters != null) {
-      //delimiters is not null, meaning we have a string buffer for each set of subfields
-      //so populate the appropriate string buffer
-      if (subField2Data.get(String.valueOf(subfield)).length() > 0) {
-        subField2Data.get(String.valueOf(subfield)).append(subField2Delimiter.get(subfield));
-      }
-      subField2Data.get(subfield).append(data);
-    } else {
-      StringBuilder sb = buffers2concat.get(0);
-      if (entityRequestedPerRepeatedSubfield) {
-        //create a new value no matter what , since this use case
-        //indicates that repeated and non-repeated subfields will create a new entity
-        //so we should not concat values
-        sb.delete(0, sb.length());
+  /**
+   * reader stage - parse the marc file and submit chunks of records to the mapping threads, the futures
+   * of the mapped chunks are queued in file order, followed by END_OF_INPUT
+   */
+  private void readChunks(InputStream entity, Executor mappers, ThreadLocal<RecordMapper> recordMappers,
+                          BlockingQueue<CompletableFuture<MappedChunk>> chunks) {
+    try {
+      //records are only framed here, the mapping threads decode them
+      final MarcRecordReader reader = new MarcRecordReader(entity);
+      ByteBuffer[] records = new ByteBuffer[CHUNK_SIZE];
+      int count = 0;
+      byte[] recordBytes;
+      while ((recordBytes = reader.next()) != null) {
+        processedCount++;
+        records[count] = ByteBuffer.wrap(recordBytes);
+        if (++count == CHUNK_SIZE) {
+          submitChunk(mappers, recordMappers, chunks, records, count);
+          records = new ByteBuffer[CHUNK_SIZE];
+          count = 0;
+        }
       }
-      if (sb.length() > 0) {
-        sb.append(" ");
+      if (count > 0) {
+        submitChunk(mappers, recordMappers, chunks, records, count);
       }
-      sb.append(data);
-    }
-
-    if (entityRequestedPerRepeatedSubfield && entityRequested) {
-      createNewComplexObj = arraysOfObjects.get(subFieldsIndex)[0] == null;
-      String completeData = generateDataString();
-      createNewObject(embeddedFields, completeData, arraysOfObjects.get(subFieldsIndex));
+      chunks.put(CompletableFuture.completedFuture(END_OF_INPUT));
+    } catch (InterruptedException e) {
+      //the upload stage stopped the job
+      Thread.currentThread().interrupt();
+    } catch (Throwable e) {
+      failChunks(chunks, e);
     }
   }
 
-  private void temporarilySaveObjectsWithMultipleFields(List<Object[]> arraysOfObjects, int subFieldsIndex) {
-    //temporarily save objects with multiple fields so that the fields of the
-    //same instance can be populated with data from different subfields
-    for (int i = arraysOfObjects.size(); i <= subFieldsIndex; i++) {
-      arraysOfObjects.add(new Object[] { null });
+  /**
+   * reader stage in file backed mode - the records are already indexed, hand ranges of positions to the
+   * mapping threads which map the records from the mapped file
+   */
+  private void readIndexedChunks(MappedMarcFile file, Executor mappers, ThreadLocal<RecordMapper> recordMappers,
+                                 BlockingQueue<CompletableFuture<MappedChunk>> chunks) {
+    try {
+      for (int from = 0; from < file.size(); from += CHUNK_SIZE) {
+        int first = from;
+        int count = Math.min(CHUNK_SIZE, file.size() - from);
+        processedCount += count;
+        chunks.put(CompletableFuture.supplyAsync(
+          () -> mapChunk(recordMappers.get(), recordBytes(file, first, count), count, first + 1L), mappers));
+      }
+      chunks.put(CompletableFuture.completedFuture(END_OF_INPUT));
+    } catch (InterruptedException e) {
+      //the upload stage stopped the job
+      Thread.currentThread().interrupt();
+    } catch (Throwable e) {
+      failChunks(chunks, e);
     }
   }
 
-  private void handleDelimiters() {
-
-    if (delimiters != null) {
-
-      for (int i = 0; i < delimiters.size(); i++) {
-        JsonObject job = delimiters.getJsonObject(i);
-        String delimiter = job.getString(VALUE);
-        JsonArray subFieldswithDel = job.getJsonArray("subfields");
-        StringBuilder subFieldsStringBuilder = new StringBuilder();
-        buffers2concat.add(subFieldsStringBuilder);
-        if(subFieldswithDel.size() == 0){
-          separator = delimiter;
-        }
-
-        for (int ii = 0; ii < subFieldswithDel.size(); ii++) {
-          subField2Delimiter.put(subFieldswithDel.getString(ii), delimiter);
-          subField2Data.put(subFieldswithDel.getString(ii), subFieldsStringBuilder);
-        }
+  /**
+   * @return views of the records in the mapped file, null for a record that can not be read
+   */
+  private static ByteBuffer[] recordBytes(MappedMarcFile file, int first, int count) {
+    ByteBuffer[] records = new ByteBuffer[count];
+    for (int i = 0; i < count; i++) {
+      try {
+        records[i] = file.getBytes(first + i);
+      } catch (Exception e) {
+        //reported as unprocessed by the mapping stage
+        LOGGER.error(e.getMessage(), e);
       }
-    } else {
-      buffers2concat.add(new StringBuilder());
     }
+    return records;
   }
 
-  private String managePushToDB(boolean done)
-    throws JsonProcessingException {
-
-    if (importSQLStatementInstance.length() == 0 && instance == null && done) {
-      //no more marcs to process, we reached the end of the loop, and we have no records in the buffer to flush to the db then just return,
-      return null;
-    }
-
-    if (importSQLStatementInstance.length() == 0 && !isTest) {
-
-      beginSQLStatement(importSQLStatementInstance, "instance");
+  /**
+   * @return a mapper for one mapping thread, with its own id generator
+   */
+  private RecordMapper newRecordMapper() {
+    String fixedId = fixedGeneralInstanceId;
+    IdGenerator ids = fixedId != null ? record -> fixedId : idStrategy.newGenerator(tenantId);
+    return new RecordMapper(mappingPlan, storeSource, ids, metrics);
+  }
 
-      if (storeSource) {
-        beginSQLStatement(importSQLStatementSource, "instance_source_marc");
+  /**
+   * decode and map a shard - a consecutive range of records - on the calling thread with its own mapper
+   */
+  private void mapShard(MappedMarcFile file, int shard, int from, int to,
+                        BlockingQueue<CompletableFuture<MappedChunk>> chunks) {
+    try {
+      RecordMapper mapper = newRecordMapper();
+      long start = System.nanoTime();
+      for (int first = from; first < to; first += CHUNK_SIZE) {
+        int count = Math.min(CHUNK_SIZE, to - first);
+        MappedChunk chunk = mapChunk(mapper, recordBytes(file, first, count), count, first + 1L);
+        shardRecords[shard] += chunk.size();
+        shardNanos[shard] = System.nanoTime() - start;
+        chunks.put(CompletableFuture.completedFuture(chunk));
       }
+      chunks.put(CompletableFuture.completedFuture(END_OF_INPUT));
+    } catch (InterruptedException e) {
+      //the upload stage stopped the job
+      Thread.currentThread().interrupt();
+    } catch (Throwable e) {
+      failChunks(chunks, e);
     }
+  }
 
-    if (instance != null) {
-      importSQLStatementInstance
-        .append(instance.getId())
-        .append("|")
-        .append(ObjectMapperTool.getMapper().writeValueAsString(instance))
-        .append(System.lineSeparator());
-
-      if (storeSource) {
-        importSQLStatementSource
-          .append(sourceRecord.getId())
-          .append("|")
-          .append(Escaper.escapeSqlCopyFrom(sourceRecord.getSourceJson().encode()))
-          .append(System.lineSeparator());
-      }
+  /**
+   * @return the records mapped per shard and the mapping throughput of each shard, empty if not sharded
+   */
+  private String shardSummary() {
+    if (shardRecords == null) {
+      return "";
     }
-
-    counter++;
-
-    String errorMessage = null;
-    if (counter == bulkSize || done) {
-      errorMessage = closeAndPostSQL();
+    StringBuilder sb = new StringBuilder(", shards:");
+    for (int shard = 0; shard < shardRecords.length; shard++) {
+      long millis = Math.max(1, shardNanos[shard] / 1_000_000);
+      sb.append(shard == 0 ? " " : ", ")
+        .append("#").append(shard + 1).append(" ")
+        .append(shardRecords[shard]).append(" records in ").append(millis).append(" ms (")
+        .append(shardRecords[shard] * 1000L / millis).append(" records/s)");
     }
-    return errorMessage;
+    return sb.toString();
   }
 
-  private void beginSQLStatement(StringBuilder importSQLStatement, String tableName) {
-    importSQLStatement
-      .append("COPY ")
-      .append(tenantId)
-      .append("_mod_inventory_storage.")
-      .append(tableName)
-      .append("(_id,jsonb) FROM STDIN  DELIMITER '|' ENCODING 'UTF8';")
-      .append(System.lineSeparator());
+  private static void failChunks(BlockingQueue<CompletableFuture<MappedChunk>> chunks, Throwable e) {
+    CompletableFuture<MappedChunk> failed = new CompletableFuture<>();
+    failed.completeExceptionally(e);
+    try {
+      chunks.put(failed);
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+    }
   }
 
-  private String closeAndPostSQL() {
-    counter = 0;
+  /**
+   * unmap and delete the spooled file once the threads reading it stopped - a stopped job may still be
+   * decoding a chunk, reading an unmapped file would crash the vm
+   */
+  private static void closeFile(MappedMarcFile file, ExecutorService reader, ExecutorService mappers) {
     try {
-      if (!isTest) {
-        importSQLStatementInstance.append("\\.").append(System.lineSeparator());
-        instancePostQuery = importSQLStatementInstance.toString();
-        HttpResponse responseInstance = requester.post(url + IMPORT_URL , importSQLStatementInstance, okapiHeaders);
-        importSQLStatementInstance.setLength(0);
-        if (responseInstance.getStatusLine().getStatusCode() != 200) {
-          String e = IOUtils.toString( responseInstance.getEntity().getContent() , "UTF8");
-          LOGGER.error(e);
-          return e;
-        }
-
-        if (storeSource) {
-          importSQLStatementSource.append("\\.").append(System.lineSeparator());
-          sourcePostQuery = importSQLStatementSource.toString();
-          HttpResponse responseSource = requester.post(url + IMPORT_URL , importSQLStatementSource, okapiHeaders);
-          importSQLStatementSource.setLength(0);
-          if (responseSource.getStatusLine().getStatusCode() != 200) {
-            String e = IOUtils.toString( responseSource.getEntity().getContent() , "UTF8");
-            LOGGER.error(e);
-            return e;
-          }
-        }
+      if (!reader.awaitTermination(FILE_READERS_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+          || !mappers.awaitTermination(FILE_READERS_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+        LOGGER.error("the mapping threads did not stop, the spooled file is left to the garbage collector");
+        return;
       }
-    } catch (Exception e) {
+      file.close();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (IOException e) {
       LOGGER.error(e.getMessage(), e);
-      return e.getMessage();
     }
-    return null;
   }
 
-  private void processControlFieldSection(Iterator<ControlField> ctrlIter)
-    throws IllegalAccessException, InstantiationException {
+  private void submitChunk(Executor mappers, ThreadLocal<RecordMapper> recordMappers,
+                           BlockingQueue<CompletableFuture<MappedChunk>> chunks, ByteBuffer[] records, int count)
+    throws InterruptedException {
 
-    //iterate over all the control fields in the marc record
-    //for each control field , check if there is a rule for mapping that field in the rule file
-    while (ctrlIter.hasNext()) {
-      ControlField controlField = ctrlIter.next();
-      //get entry for this control field in the rules.json file
-      JsonArray controlFieldRules = rulesFile.getJsonArray(controlField.getTag());
-      if (controlFieldRules != null) {
-        handleControlFieldRules(controlFieldRules, controlField);
-      }
-    }
+    long firstPosition = processedCount - count + 1L;
+    chunks.put(CompletableFuture.supplyAsync(
+      () -> mapChunk(recordMappers.get(), records, count, firstPosition), mappers));
   }
 
-  private void handleControlFieldRules(JsonArray controlFieldRules, ControlField controlField)
-    throws IllegalAccessException, InstantiationException {
-
-    //when populating an instance with multiple fields from the same marc field
-    //this is used to pass the reference of the previously created instance to the buildObject function
-    Object[] rememberComplexObj = new Object[]{null};
-    createNewComplexObj = true;
-
-    for (int i = 0; i < controlFieldRules.size(); i++) {
-      JsonObject cfRule = controlFieldRules.getJsonObject(i);
-
-      //get rules - each rule can contain multiple conditions that need to be met and a
-      //value to inject in case all the conditions are met
-      rules = cfRule.getJsonArray("rules");
-
-      //the content of the Marc control field
-      String data = processRules(controlField.getData());
-      if ((data != null) && data.isEmpty()) {
+  /**
+   * mapping and serialization stage - runs on a mapping thread with that thread's mapper
+   */
+  private MappedChunk mapChunk(RecordMapper mapper, ByteBuffer[] records, int count, long firstPosition) {
+    MappedChunk chunk = new MappedChunk(count);
+    for (int i = 0; i < count; i++) {
+      if (records[i] == null) {
+        chunk.addUnprocessed(firstPosition + i);
         continue;
       }
+      try {
+        mapper.map(records[i]);
+        mapper.writeInstance(chunk.getInstances());
 
-      //if conditionsMet = true, then all conditions of a specific rule were met
-      //and we can set the target to the rule's value
-      String target = cfRule.getString("target");
-      String[] embeddedFields = target.split("\\.");
-
-      if (isMappingValid(instance, embeddedFields)) {
-        Object val = getValue(instance, embeddedFields, data);
-        LoaderAPI.buildObject(instance, embeddedFields, createNewComplexObj, val, rememberComplexObj);
-        createNewComplexObj = false;
-      } else {
-        LOGGER.debug("bad mapping " + rules.encode());
+        if (storeSource) {
+          mapper.writeSource(chunk.getSources());
+        }
+        chunk.add();
+      } catch (Exception e) {
+        chunk.addUnprocessed(firstPosition + i);
+        LOGGER.error(e.getMessage(), e);
       }
     }
+    mappedCount.add(chunk.size());
+    return chunk;
   }
 
-  private String processRules(String data){
-    if (rules == null) {
-      return Escaper.escape(data);
-    }
-
-    //there are rules associated with this subfield / control field - to instance field mapping
-    String originalData = data;
-    for (int i = 0; i < rules.size(); i++) {
-      ProcessedSingleItem psi = processRule(rules.getJsonObject(i), data, originalData);
-      data = psi.getData();
-      if (psi.doBreak()) {
-        break;
+  /**
+   * upload stage - take the mapped chunks of each queue in order, one chunk from each queue in turn,
+   * and batch them
+   * @return an error message if an upload failed, null otherwise
+   */
+  private String uploadChunks(List<BlockingQueue<CompletableFuture<MappedChunk>>> queues)
+    throws InterruptedException, ExecutionException {
+
+    List<BlockingQueue<CompletableFuture<MappedChunk>>> active = new ArrayList<>(queues);
+    int next = 0;
+    while (!active.isEmpty()) {
+      if (cancelled) {
+        return CANCELLED;
+      }
+      CompletableFuture<MappedChunk> mapped = takeOrFlush(active.get(next));
+      if (mapped == null) {
+        String error = closeAndPostSQL(BatchStatistics.Trigger.TIME);
+        if (error != null) {
+          return error;
+        }
+        continue;
+      }
+      MappedChunk chunk = mapped.get();
+      if (chunk == END_OF_INPUT) {
+        active.remove(next);
+        if (next == active.size()) {
+          next = 0;
+        }
+        continue;
+      }
+      next = (next + 1) % active.size();
+      unprocessed.append(chunk.getUnprocessed());
+      for (int i = 0; i < chunk.size(); i++) {
+        String error = managePushToDB(chunk, i);
+        if (error != null) {
+          return error;
+        }
+      }
+      if (storeSource && chunk.size() > 0) {
+        lastSourceChunk = chunk;
       }
     }
-    return Escaper.escape(data);
+    return finishPushToDB();
   }
 
-  private ProcessedSingleItem processRule(JsonObject rule, String data, String originalData) {
-
-
-    //get the conditions associated with each rule
-    JsonArray conditions = rule.getJsonArray("conditions");
-
-    // see ### constant value in README.md (section Processor.java)
-    String ruleConstVal = rule.getString(VALUE);
-    boolean conditionsMet = true;
-
-    //each rule has conditions, if they are all met, then mark
-    //continue processing the next condition, if all conditions are met
-    //set the target to the value of the rule
-    boolean isCustom = false;
-
-    for (int m = 0; m < conditions.size(); m++) {
-      JsonObject condition = conditions.getJsonObject(m);
-
-      // see ### functions in README.md (section Processor.java)
-      String[] functions = ProcessorHelper.getFunctionsFromCondition(condition);
-      isCustom = checkIfAnyFunctionIsCustom(functions, isCustom);
+  /**
+   * wait for the next chunk of the queue, but not past the time limit of a batch that already has
+   * records - the limit holds even while the mappers are slow or the input stalls
+   * @return null if the batch reached batchMaxMillis before a chunk was queued
+   */
+  private CompletableFuture<MappedChunk> takeOrFlush(BlockingQueue<CompletableFuture<MappedChunk>> queue)
+    throws InterruptedException {
 
-      ProcessedSinglePlusConditionCheck processedCondition =
-        processCondition(condition, data, originalData, conditionsMet, ruleConstVal, isCustom);
-      data = processedCondition.getData();
-      conditionsMet = processedCondition.isConditionsMet();
+    if (batchMaxMillis <= 0 || counter == 0) {
+      return queue.take();
     }
+    long left = batchStart + batchMaxMillis - System.currentTimeMillis();
+    return left > 0 ? queue.poll(left, TimeUnit.MILLISECONDS) : queue.poll();
+  }
 
-    if (conditionsMet && ruleConstVal != null && !isCustom) {
+  private String managePushToDB(MappedChunk chunk, int index) throws InterruptedException {
 
-      //all conditions of the rule were met, and there
-      //is a constant value associated with the rule, and this is
-      //not a custom rule, then set the data to the const value
-      //no need to continue processing other rules for this subfield
-      data = ruleConstVal;
-      return new ProcessedSingleItem(data, true);
+    if (counter == 0) {
+      batchStart = System.currentTimeMillis();
     }
-    return new ProcessedSingleItem(data, false);
-  }
 
-  private ProcessedSinglePlusConditionCheck processCondition(JsonObject condition, String data, String originalData,
-                                                             boolean conditionsMet, String ruleConstVal,
-                                                             boolean isCustom) {
+    if (batch.getInstances().length() == 0 && !isTest) {
 
-    if (leader != null && condition.getBoolean("LDR") != null) {
+      beginSQLStatement(batch.getInstances(), "instance");
 
-      //the rule also has a condition on the leader field
-      //whose value also needs to be passed into any declared function
-      data = leader.toString();
+      if (storeSource) {
+        beginSQLStatement(batch.getSources(), "instance_source_marc");
+      }
     }
 
-    String valueParam = condition.getString(VALUE);
-    for (String function : ProcessorHelper.getFunctionsFromCondition(condition)) {
-      ProcessedSinglePlusConditionCheck processedFunction =  processFunction(function, data, isCustom, valueParam, condition,
-        conditionsMet, ruleConstVal);
-      conditionsMet = processedFunction.isConditionsMet();
-      data = processedFunction.getData();
-      if (processedFunction.doBreak()) {
-        break;
-      }
+    chunk.appendInstance(index, batch.getInstances());
+    if (storeSource) {
+      chunk.appendSource(index, batch.getSources());
     }
 
-    if (!conditionsMet) {
+    counter++;
 
-      //all conditions for this rule we not met, revert data to the originalData passed in.
-      return new ProcessedSinglePlusConditionCheck(originalData, true, false);
+    String errorMessage = null;
+    if (counter == bulkSize) {
+      errorMessage = closeAndPostSQL(BatchStatistics.Trigger.COUNT);
+    } else if (batchBytes > 0 && batch.size() >= batchBytes) {
+      errorMessage = closeAndPostSQL(BatchStatistics.Trigger.BYTES);
+    } else if (batchMaxMillis > 0 && System.currentTimeMillis() - batchStart >= batchMaxMillis) {
+      errorMessage = closeAndPostSQL(BatchStatistics.Trigger.TIME);
     }
-    return new ProcessedSinglePlusConditionCheck(data, false, true);
+    return errorMessage;
   }
 
-  private ProcessedSinglePlusConditionCheck processFunction(String function, String data, boolean isCustom,
-                                                            String valueParam, JsonObject condition,
-                                                            boolean conditionsMet, String ruleConstVal) {
-
-    if (CUSTOM.equals(function.trim())) {
-      try {
-        if (valueParam == null) {
-          throw new NullPointerException("valueParam == null");
-        }
-        data = (String)JSManager.runJScript(valueParam, data);
-      } catch(Exception e) {
-
-        //the function has thrown an exception meaning this condition has failed,
-        //hence this specific rule has failed
-        conditionsMet = false;
-        LOGGER.error(e.getMessage(), e);
-      }
-    } else {
-      String c = NormalizationFunctions.runFunction(function.trim(), data, condition.getString("parameter"));
-      if (valueParam != null && !c.equals(valueParam) && !isCustom) {
+  private String finishPushToDB() throws InterruptedException {
 
-        //still allow a condition to compare the output of a function on the data to a constant value
-        //unless this is a custom javascript function in which case, the value holds the custom function
-        return new ProcessedSinglePlusConditionCheck(data, true, false);
-
-      } else if (ruleConstVal == null) {
+    if (batch.getInstances().length() > 0) {
+      closeAndPostSQL(BatchStatistics.Trigger.END);
+    }
 
-        //if there is no val to use as a replacement , then assume the function
-        //is doing generating the needed value and set the data to the returned value
-        data = c;
-      }
+    //wait for the batches still uploading, they are returned to the free batches once done
+    List<SqlBatch> uploaded = new ArrayList<>();
+    for (int i = 0; i < MAX_IN_FLIGHT_BATCHES; i++) {
+      uploaded.add(freeBatches.take());
     }
-    return new ProcessedSinglePlusConditionCheck(data, false, conditionsMet);
+    freeBatches.addAll(uploaded);
+    return uploadError;
   }
 
-  private boolean checkIfAnyFunctionIsCustom(String[] functions, boolean isCustom) {
-
-    //we need to know if one of the functions is a custom function
-    //so that we know how to handle the value field - the custom indication
-    //may not be the first function listed in the function list
-    //a little wasteful, but this will probably only loop at most over 2 or 3 function names
-    for (String function : functions) {
-      if (CUSTOM.equals(function.trim())) {
-        isCustom = true;
-        break;
-      }
-    }
-    return isCustom;
+  private static ThreadFactory threadFactory(String name) {
+    AtomicInteger count = new AtomicInteger();
+    return runnable -> {
+      Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
   }
 
-  /**
-   * create the need part of the instance object based on the target and the string containing the
-   * content per subfield sets
-   * @param embeddedFields - the target
-   * @param rememberComplexObj - the current object within the instance object we are currently populating
-   * this can be null if we are now creating a new object within the instance object
-   * @return whether a new object was created (boolean)
-   */
-  private boolean createNewObject(String[] embeddedFields, String data, Object[] rememberComplexObj) {
+  private void beginSQLStatement(ByteBuilder importSQLStatement, String tableName) {
+    importSQLStatement
+      .append("COPY ")
+      .append(tenantId)
+      .append("_mod_inventory_storage.")
+      .append(tableName)
+      .append("(_id,jsonb) FROM STDIN  DELIMITER '|' ENCODING 'UTF8';")
+      .append(System.lineSeparator());
+  }
 
-    if (data.length() != 0) {
-      Object val = getValue(instance, embeddedFields, data);
-      try {
-        return LoaderAPI.buildObject(instance, embeddedFields, createNewComplexObj, val, rememberComplexObj);
-      } catch (Exception e) {
-        LOGGER.error(e.getMessage(), e);
-        return false;
-      }
-    }
-    return false;
+  private static HttpEntity toEntity(ByteBuilder statement) {
+    return new ByteArrayEntity(statement.getBytes(), 0, statement.length(), ContentType.APPLICATION_OCTET_STREAM);
   }
 
   /**
-   * buffers2concat - list of string buffers, each one representing the data belonging to a set of
-   * subfields concatenated together, so for example, 2 sets of subfields will mean two entries in the list
-   * @return the generated data string
+   * hand the current batch over to the uploader and continue with a free batch, blocks while
+   * MAX_IN_FLIGHT_BATCHES are uploading
+   * @return the error of the first failed upload, null if no upload failed so far
    */
-  private String generateDataString(){
-    StringBuilder finalData = new StringBuilder();
-    for (StringBuilder sb : buffers2concat) {
-      if (sb.length() > 0) {
-        if (finalData.length() > 0) {
-          finalData.append(separator);
+  private String closeAndPostSQL(BatchStatistics.Trigger trigger) throws InterruptedException {
+    if (!isTest) {
+      batchStatistics.add(counter, batch.size(), trigger);
+      metrics.recordBatch(counter, batch.size());
+    }
+    int records = counter;
+    counter = 0;
+    if (!isTest) {
+      SqlBatch full = batch;
+      batchesInFlight.incrementAndGet();
+      uploader.execute(() -> {
+        try {
+          postBatch(full, records);
+        } finally {
+          full.clear();
+          batchesInFlight.decrementAndGet();
+          freeBatches.add(full);
         }
-        finalData.append(sb);
-      }
+      });
+      batch = freeBatches.take();
     }
-    return finalData.toString();
+    return uploadError;
   }
 
-  /**
-   * replace the existing subfields in the datafield with subfields generated on the data of the subfield
-   * for example: $aitaspa in 041 would be the language of the record. this can be split into two $a subfields
-   * $aita and $aspa so that it can be concatenated properly or even become two separate fields with the
-   * entity per repeated subfield flag
-   * the data is expanded by the implementing function (can be custom as well) - the implementing function
-   * receives data from ONE subfield at a time - two $a subfields will be processed separately.
-   * @param subFields - sub fields not yet expanded
-   * @param splitConf - (add description)
-   * @throws ScriptException - (add description)
-   */
-  private void expandSubfields(List<Subfield> subFields, JsonObject splitConf) throws ScriptException {
-
-    List<Subfield> expandedSubs = new ArrayList<>();
-    String func = splitConf.getString(TYPE);
-    boolean isCustom = false;
-
-    if (CUSTOM.equals(func)) {
-      isCustom = true;
+  private void postBatch(SqlBatch full, int records) {
+    if (uploadError != null) {
+      //the job already failed, do not load any further batches
+      return;
     }
-
-    String param = splitConf.getString(VALUE);
-    for (Subfield subField : subFields) {
-
-      String data = subField.getData();
-      Iterator<?> splitData;
-
-      if (isCustom) {
-        try {
-
-          splitData = ((jdk.nashorn.api.scripting.ScriptObjectMirror)JSManager.runJScript(param, data))
-            .values()
-            .iterator();
-
-        } catch (Exception e) {
-          LOGGER.error("Expanding a field via subFieldSplit must return an array of results. ");
-          throw e;
-        }
-      } else {
-        splitData = NormalizationFunctions.runSplitFunction(func, data, param);
+    if (cancelled) {
+      //the batch is dropped, the job must not complete as if it was loaded
+      uploadError = CANCELLED;
+      return;
+    }
+    long start = System.nanoTime();
+    try {
+      full.getInstances().append("\\.").append(System.lineSeparator());
+      HttpResponse responseInstance = requester.post(url + IMPORT_URL , toEntity(full.getInstances()), okapiHeaders);
+      if (responseInstance.getStatusLine().getStatusCode() != 200) {
+        String e = IOUtils.toString( responseInstance.getEntity().getContent() , "UTF8");
+        LOGGER.error(e);
+        uploadError = e;
+        return;
       }
 
-      while (splitData.hasNext()) {
-        String newData = (String)splitData.next();
-        Subfield expandedSub = new SubfieldImpl(subField.getCode(), newData);
-        expandedSubs.add(expandedSub);
+      if (storeSource) {
+        full.getSources().append("\\.").append(System.lineSeparator());
+        HttpResponse responseSource = requester.post(url + IMPORT_URL , toEntity(full.getSources()), okapiHeaders);
+        if (responseSource.getStatusLine().getStatusCode() != 200) {
+          String e = IOUtils.toString( responseSource.getEntity().getContent() , "UTF8");
+          LOGGER.error(e);
+          uploadError = e;
+          return;
+        }
       }
+      uploadedCount += records;
+      metrics.record(LoadMetrics.Stage.UPLOAD, System.nanoTime() - start);
+    } catch (Exception e) {
+      LOGGER.error(e.getMessage(), e);
+      uploadError = e.getMessage();
     }
-    subFields.clear();
-    subFields.addAll(expandedSubs);
   }
 
   void processStatic(String url, boolean isTest, InputStream entity, Handler<AsyncResult<Response>> asyncResultHandler,
                      Context vertxContext){
     this.isTest = isTest;
     this.url = url;
-    vertxContext.owner().executeBlocking( block -> {
+    LoadExecutor executor = isTest ? LoadExecutor.TEST : LoadExecutor.STATIC;
+    boolean admitted = executor.execute(vertxContext.owner(), block -> {
       try {
         processStaticBlock(block, entity);
       } catch (Exception e) {
         LOGGER.error(e.getMessage(), e);
         block.fail(e);
       }
-    }, true, whenDone -> {
+    }, whenDone -> {
       if (whenDone.succeeded()) {
 
         if (!isTest) {
@@ -837,6 +802,10 @@ class Processor {
       }
       LOGGER.info("Completed processing of REQUEST");
     });
+    if (!admitted) {
+      asyncResultHandler.handle(io.vertx.core.Future.succeededFuture(
+        LoadResource.PostLoadStaticResponse.withPlainServiceUnavailable(LoadExecutor.BUSY)));
+    }
   }
 
   private void processStaticBlock(Future<Object> block, InputStream entity)
@@ -880,7 +849,8 @@ class Processor {
 
     if (!isTest) {
       importSQLStatementMethod.append("\\.");
-      HttpResponse response = requester.post(url + IMPORT_URL , importSQLStatementMethod, okapiHeaders);
+      HttpResponse response = requester.post(url + IMPORT_URL ,
+        new CharSequenceEntity(importSQLStatementMethod, "application/octet-stream"), okapiHeaders);
       if (response.getStatusLine().getStatusCode() != 200) {
         String e = IOUtils.toString( response.getEntity().getContent() , "UTF8");
         LOGGER.error(e);
@@ -954,38 +924,4 @@ class Processor {
     });
     return listOfRecords;
   }
-
-  private static Object getValue(Object object, String[] path, String value) {
-
-    Class<?> type = Integer.TYPE;
-    for (String pathSegment : path) {
-      try {
-        Field field = object.getClass().getDeclaredField(pathSegment);
-        type = field.getType();
-        if (type.isAssignableFrom(java.util.List.class) || type.isAssignableFrom(java.util.Set.class)) {
-          ParameterizedType listType = (ParameterizedType) field.getGenericType();
-          type = (Class<?>) listType.getActualTypeArguments()[0];
-          object = type.newInstance();
-        }
-      } catch (Exception e) {
-        LOGGER.error(e.getMessage(), e);
-      }
-    }
-    return getValue(type, value);
-  }
-
-  private static Object getValue(Class<?> type, String value) {
-
-    Object val;
-    if (type.isAssignableFrom(String.class)) {
-      val = value;
-    } else if (type.isAssignableFrom(Boolean.class)) {
-      val = Boolean.valueOf(value);
-    } else if (type.isAssignableFrom(Double.class)) {
-      val = Double.valueOf(value);
-    } else {
-      val = Integer.valueOf(value);
-    }
-    return val;
-  }
 }
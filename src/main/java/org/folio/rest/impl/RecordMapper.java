@@ -0,0 +1,720 @@
+package org.folio.rest.impl;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.folio.rest.id.IdGenerator;
+import org.folio.rest.javascript.JSManager;
+import org.folio.rest.jaxrs.model.Instance;
+import org.folio.rest.marc.MarcDataField;
+import org.folio.rest.marc.MarcJsonCopyWriter;
+import org.folio.rest.marc.MarcRecord;
+import org.folio.rest.rules.CharSelectTable;
+import org.folio.rest.rules.Condition;
+import org.folio.rest.rules.FieldMapping;
+import org.folio.rest.rules.MappingPlan;
+import org.folio.rest.rules.Rule;
+import org.folio.rest.rules.SubFieldSplit;
+import org.folio.rest.rules.TargetMapping;
+import org.folio.rest.service.PathAccessor;
+import org.folio.rest.struct.ByteBuilder;
+import org.folio.rest.struct.LoadMetrics;
+import org.folio.rest.tools.utils.ObjectMapperTool;
+import org.folio.rest.utils.Escaper;
+
+import javax.script.ScriptException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * Maps a single marc record to an instance (and optionally its source record) using a tenant's
+ * {@link MappingPlan}. A mapper holds the mutable state of the record being mapped, so it must be
+ * confined to one thread - the {@link Processor} creates one per mapping thread.
+ */
+class RecordMapper {
+
+  private static final Logger LOGGER = LogManager.getLogger(RecordMapper.class);
+
+  private final MappingPlan mappingPlan;
+  private final boolean storeSource;
+  private final IdGenerator idGenerator;
+  private final LoadMetrics metrics;
+  //the tags of the fields decoded, null to decode all fields
+  private final BitSet keptTags;
+
+  private final MarcRecord record = new MarcRecord();
+  private final MarcDataField dataField = new MarcDataField();
+  private final MarcJsonCopyWriter sourceWriter = new MarcJsonCopyWriter();
+  //subfields of the current data field once a subFieldSplit replaced them
+  private boolean expanded;
+  private final StringBuilder expandedCodes = new StringBuilder();
+  private final List<String> expandedData = new ArrayList<>();
+  private String separator; //separator between subfields with different delimiters
+  private String[] delimiters;
+  private Instance instance;
+  private Rule[] rules;
+  private CharSelectTable charSelectTable;
+  //the state of the rule being processed, kept here so that processing allocates no result objects
+  private String ruleData;
+  private boolean conditionsMet;
+  private boolean createNewComplexObj;
+  private boolean entityRequested;
+  private boolean entityRequestedPerRepeatedSubfield;
+  private final List<StringBuilder> buffers2concat = new ArrayList<>();
+  private final List<StringBuilder> bufferPool = new ArrayList<>();
+  //scratch state reused across fields and records so that mapping a record allocates no bookkeeping
+  //objects: the object of the field being populated, one object per subfield position of the current
+  //field mapping (the first usedObjectSlots are in use), the concatenated data and the split subfields
+  private final Object[] rememberComplexObj = { null };
+  private final List<Object[]> objectSlots = new ArrayList<>();
+  private int usedObjectSlots;
+  private final StringBuilder finalData = new StringBuilder();
+  private final StringBuilder splitCodes = new StringBuilder();
+  private final List<String> splitSubfields = new ArrayList<>();
+  //the generator is reused for all records, it writes to the builder of the record being serialized
+  private JsonGenerator generator;
+  private ByteBuilder target;
+  //the records mapped so far, every LoadMetrics.SAMPLE_INTERVAL th one also times its nested stages
+  private long mapped;
+  private boolean sampled;
+  private long scriptNanos;
+  private long buildNanos;
+  private long escapeNanos;
+
+  /**
+   * @param idGenerator - generates the id of each mapped instance, confined to this mapper
+   * @param metrics - receives the time spent per stage for each record
+   */
+  RecordMapper(MappingPlan mappingPlan, boolean storeSource, IdGenerator idGenerator, LoadMetrics metrics) {
+    this.mappingPlan = mappingPlan;
+    this.storeSource = storeSource;
+    this.idGenerator = idGenerator;
+    this.metrics = metrics;
+    BitSet tags = null;
+    if (!storeSource) {
+      tags = mappingPlan.getReferencedTags();
+      int[] idTags = idGenerator.getTags();
+      if (idTags.length > 0) {
+        tags = (BitSet) tags.clone();
+        for (int tag : idTags) {
+          tags.set(tag);
+        }
+      }
+    }
+    this.keptTags = tags;
+  }
+
+  /**
+   * Map the binary marc record between the position and the limit of the buffer, the result is available
+   * via {@link #getInstance()}, {@link #writeInstance(ByteBuilder)} and {@link #writeSource(ByteBuilder)}
+   * until the next call.
+   * @throws IllegalArgumentException if the record can not be decoded
+   */
+  void map(ByteBuffer recordBytes) throws IllegalAccessException, InstantiationException, ScriptException {
+    sampled = mapped++ % LoadMetrics.SAMPLE_INTERVAL == 0;
+    scriptNanos = 0;
+    buildNanos = 0;
+    escapeNanos = 0;
+    long start = System.nanoTime();
+
+    //unless the whole record is stored, fields without mappings are skipped in the directory
+    record.wrap(recordBytes, keptTags);
+    instance = new Instance();
+    long parsed = System.nanoTime();
+
+    processControlFieldSection();
+    long controlFields = System.nanoTime();
+    processDataFieldSection();
+
+    //one id per record
+    instance.setId(idGenerator.next(record));
+    long dataFields = System.nanoTime();
+
+    metrics.record(LoadMetrics.Stage.PARSE, parsed - start);
+    metrics.record(LoadMetrics.Stage.CONTROL_FIELDS, controlFields - parsed);
+    metrics.record(LoadMetrics.Stage.DATA_FIELDS, dataFields - controlFields);
+    if (sampled) {
+      metrics.record(LoadMetrics.Stage.JAVASCRIPT, scriptNanos);
+      metrics.record(LoadMetrics.Stage.OBJECT_BUILDING, buildNanos);
+      metrics.record(LoadMetrics.Stage.ESCAPING, escapeNanos);
+    }
+  }
+
+  Instance getInstance() {
+    return instance;
+  }
+
+  /**
+   * write the COPY line of the last mapped instance - its id and its json - to out
+   */
+  void writeInstance(ByteBuilder out) throws IOException {
+    if (generator == null) {
+      generator = ObjectMapperTool.getMapper().getFactory().createGenerator(new OutputStream() {
+        @Override
+        public void write(int b) {
+          target.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+          target.write(b, off, len);
+        }
+      });
+      //consecutive instances are separated by the line end, not by the default space
+      generator.setRootValueSeparator(null);
+    }
+    long start = System.nanoTime();
+    target = out;
+    out.append(instance.getId()).append("|");
+    try {
+      ObjectMapperTool.getMapper().writeValue(generator, instance);
+      generator.flush();
+    } catch (IOException | RuntimeException e) {
+      //the generator may be left within the failed instance
+      generator = null;
+      throw e;
+    }
+    out.append(System.lineSeparator());
+    metrics.record(LoadMetrics.Stage.SERIALIZATION, System.nanoTime() - start);
+  }
+
+  /**
+   * write the COPY line of the source of the last mapped record - the instance id and the record as
+   * MARC-in-JSON - to out, only if source records are stored
+   */
+  void writeSource(ByteBuilder out) {
+    long start = System.nanoTime();
+    out.append(instance.getId()).append("|");
+    sourceWriter.write(record, out);
+    out.append(System.lineSeparator());
+    metrics.record(LoadMetrics.Stage.SERIALIZATION, System.nanoTime() - start);
+  }
+
+  private void processDataFieldSection() throws IllegalAccessException, ScriptException,
+    InstantiationException {
+
+    for (int field = 0; field < record.getFieldCount(); field++) {
+      if (!record.isControlField(field)) {
+        handleRecordDataFieldByField(field);
+      }
+    }
+  }
+
+  private void handleRecordDataFieldByField(int field) throws ScriptException, IllegalAccessException,
+    InstantiationException {
+
+    createNewComplexObj = true; // each rule will generate a new instance in an array , for an array data member
+    FieldMapping[] mappingEntry = mappingPlan.getDataFieldMappings(record.getTagString(field));
+    if (mappingEntry == null) {
+      return;
+    }
+    rememberComplexObj[0] = null;
+    //only fields with a mapping are parsed into subfields
+    dataField.select(record, field);
+    expanded = false;
+
+    //there is a mapping associated with this marc field
+    for (FieldMapping subFieldMapping : mappingEntry) {
+
+      //there could be multiple mapping entries, specifically different mappings
+      //per subfield in the marc field
+      processSubFieldMapping(subFieldMapping);
+    }
+  }
+
+  private void processSubFieldMapping(FieldMapping subFieldMapping)
+    throws IllegalAccessException, InstantiationException, ScriptException {
+
+    //entity field indicates that the subfields within the entity definition should be
+    //a single instance, anything outside the entity definition will be placed in another
+    //instance of the same type, unless the target points to a different type.
+    //multiple entities can be declared in a field, meaning each entity will be a new instance
+    //with the subfields defined in a single entity grouped as a single instance.
+    //all definitions not enclosed within the entity will be associated with anothe single instance
+    //if no "entity" is defined , then all rules contents of the field getting mapped to the same type
+    //will be placed in a single instance of that type.
+    entityRequested = subFieldMapping.isEntityRequested();
+
+    //for repeatable subfields, you can indicate that each repeated subfield should respect
+    //the new instance declaration and create a new instance. so that if there are two "a" subfields
+    //each one will create its own instance
+    entityRequestedPerRepeatedSubfield = subFieldMapping.isEntityPerRepeatedSubfield();
+
+    //a single mapping entry can also map multiple subfields to a specific field in the instance
+    usedObjectSlots = 0;
+    for (TargetMapping targetMapping : subFieldMapping.getTargets()) {
+      handleInstanceFields(targetMapping);
+    }
+
+    if (entityRequested) {
+      createNewComplexObj = true;
+    }
+  }
+
+  private void handleInstanceFields(TargetMapping targetMapping)
+    throws ScriptException, IllegalAccessException, InstantiationException {
+
+    if (!targetMapping.hasSubfields()) {
+      throw new IllegalStateException("no subfield declared in mapping " + targetMapping.getSource().encode());
+    }
+
+    //it can be a one to one mapping, or there could be rules to apply prior to the mapping
+    rules = targetMapping.getRules();
+    charSelectTable = targetMapping.getCharSelectTable();
+
+    // see ### Delimiters in README.md (section Processor.java)
+    delimiters = targetMapping.getDelimiters();
+
+    //should we run rules on each subfield value independently or on the entire concatenated
+    //string, not relevant for non repeatable single subfield declarations or entity declarations
+    //with only one non repeatable subfield
+    boolean applyPost = targetMapping.isApplyRulesOnConcatenatedData();
+
+    //keeps a reference to the stringbuilders that contain the data of the
+    //subfield sets. this list is then iterated over and used to delimit subfield sets
+    buffers2concat.clear();
+
+    handleDelimiters(targetMapping);
+
+    PathAccessor accessor = targetMapping.getAccessor();
+    if (!accessor.isValid()) {
+      LOGGER.debug("bad mapping " + targetMapping.getSource().encode());
+      return;
+    }
+
+    //check if we need to expand the subfields into additional subfields
+    SubFieldSplit splitter = targetMapping.getSubFieldSplit();
+    if (splitter != null) {
+      expandSubfields(splitter);
+    }
+
+    //iterate over the subfields in the mapping entry
+    int subfieldCount = expanded ? expandedData.size() : dataField.getSubfieldCount();
+    for (int i = 0; i < subfieldCount; i++) {
+      handleSubFields(i, targetMapping, applyPost, accessor);
+    }
+
+    if (!(entityRequestedPerRepeatedSubfield && entityRequested)) {
+
+      String completeData = generateDataString();
+      if (applyPost) {
+        completeData = processRules(completeData);
+      }
+      if (createNewObject(accessor, completeData, rememberComplexObj)) {
+        createNewComplexObj = false;
+      }
+    }
+  }
+
+  private void handleSubFields(int subFieldsIndex, TargetMapping targetMapping, boolean applyPost,
+                               PathAccessor accessor) {
+
+    char subfield = getSubfieldCode(subFieldsIndex);
+    if (!targetMapping.hasSubfield(subfield)) {
+      return;
+    }
+    String data = getSubfieldData(subFieldsIndex);
+
+    //rule file contains a rule for this subfield
+    if (usedObjectSlots <= subFieldsIndex) {
+      temporarilySaveObjectsWithMultipleFields(subFieldsIndex);
+    }
+
+    if (!applyPost) {
+
+      //apply rule on the per subfield data. if applyPost is set to true, we need
+      //to wait and run this after all the data associated with this target has been
+      //concatenated , therefore this can only be done in the createNewObject function
+      //which has the full set of subfield data
+      data = processRules(data);
+    }
+
+    if (delimiters != null) {
+      //delimiters is not null, meaning we have a string buffer for each set of subfields
+      //so populate the appropriate string buffer
+      int group = targetMapping.getDelimiterGroup(subfield);
+      if (group == -1) {
+        throw new IllegalStateException("no delimiter declared for subfield " + subfield
+          + " in mapping " + targetMapping.getSource().encode());
+      }
+      StringBuilder sb = buffers2concat.get(group);
+      if (sb.length() > 0) {
+        sb.append(delimiters[group]);
+      }
+      sb.append(data);
+    } else {
+      StringBuilder sb = buffers2concat.get(0);
+      if (entityRequestedPerRepeatedSubfield) {
+        //create a new value no matter what , since this use case
+        //indicates that repeated and non-repeated subfields will create a new entity
+        //so we should not concat values
+        sb.delete(0, sb.length());
+      }
+      if (sb.length() > 0) {
+        sb.append(" ");
+      }
+      sb.append(data);
+    }
+
+    if (entityRequestedPerRepeatedSubfield && entityRequested) {
+      Object[] slot = objectSlots.get(subFieldsIndex);
+      createNewComplexObj = slot[0] == null;
+      String completeData = generateDataString();
+      createNewObject(accessor, completeData, slot);
+    }
+  }
+
+  private void temporarilySaveObjectsWithMultipleFields(int subFieldsIndex) {
+    //temporarily save objects with multiple fields so that the fields of the
+    //same instance can be populated with data from different subfields
+    for (int i = usedObjectSlots; i <= subFieldsIndex; i++) {
+      if (objectSlots.size() <= i) {
+        objectSlots.add(new Object[] { null });
+      } else {
+        objectSlots.get(i)[0] = null;
+      }
+    }
+    usedObjectSlots = subFieldsIndex + 1;
+  }
+
+  private void handleDelimiters(TargetMapping targetMapping) {
+
+    //one string buffer per set of subfields sharing a delimiter, the buffers
+    //are reused across mappings and records
+    int buffersNeeded = delimiters == null ? 1 : delimiters.length;
+    for (int i = 0; i < buffersNeeded; i++) {
+      if (bufferPool.size() <= i) {
+        bufferPool.add(new StringBuilder());
+      }
+      StringBuilder sb = bufferPool.get(i);
+      sb.setLength(0);
+      buffers2concat.add(sb);
+    }
+    if (targetMapping.getSeparator() != null) {
+      separator = targetMapping.getSeparator();
+    }
+  }
+  private void processControlFieldSection()
+    throws IllegalAccessException, InstantiationException {
+
+    //iterate over all the control fields in the marc record
+    //for each control field , check if there is a rule for mapping that field in the rule file
+    for (int field = 0; field < record.getFieldCount(); field++) {
+      if (!record.isControlField(field)) {
+        continue;
+      }
+      //get entry for this control field in the rules.json file
+      TargetMapping[] controlFieldRules = mappingPlan.getControlFieldMappings(record.getTagString(field));
+      if (controlFieldRules != null) {
+        handleControlFieldRules(controlFieldRules, record.getData(field));
+      }
+    }
+  }
+
+  private void handleControlFieldRules(TargetMapping[] controlFieldRules, String controlFieldData)
+    throws IllegalAccessException, InstantiationException {
+
+    //when populating an instance with multiple fields from the same marc field
+    //this is used to pass the reference of the previously created instance to the buildObject function
+    rememberComplexObj[0] = null;
+    createNewComplexObj = true;
+
+    for (TargetMapping cfRule : controlFieldRules) {
+
+      //get rules - each rule can contain multiple conditions that need to be met and a
+      //value to inject in case all the conditions are met
+      rules = cfRule.getRules();
+      charSelectTable = cfRule.getCharSelectTable();
+
+      //the content of the Marc control field
+      String data = processRules(controlFieldData);
+      if ((data != null) && data.isEmpty()) {
+        continue;
+      }
+
+      //if conditionsMet = true, then all conditions of a specific rule were met
+      //and we can set the target to the rule's value
+      PathAccessor accessor = cfRule.getAccessor();
+
+      if (accessor != null && accessor.isValid()) {
+        setValue(accessor, data, rememberComplexObj);
+        createNewComplexObj = false;
+      } else {
+        LOGGER.debug("bad mapping " + cfRule.getSource().encode());
+      }
+    }
+  }
+
+  private String processRules(String data){
+    if (rules == null) {
+      return escape(data);
+    }
+
+    if (charSelectTable != null && data != null) {
+
+      //constant char_select rules only - find the first rule met by looking up the selected chars
+      int rule = charSelectTable.match(data, charSelectTable.usesLeader() ? record.getLeader() : null);
+      return escape(rule < 0 ? data : rules[rule].getValue());
+    }
+
+    //there are rules associated with this subfield / control field - to instance field mapping
+    ruleData = data;
+    for (Rule rule : rules) {
+      if (processRule(rule, data)) {
+        break;
+      }
+    }
+    return escape(ruleData);
+  }
+
+  /**
+   * @return true if the constant value of the rule was set as the data - no other rules are processed
+   */
+  private boolean processRule(Rule rule, String originalData) {
+
+    // see ### constant value in README.md (section Processor.java)
+    String ruleConstVal = rule.getValue();
+    conditionsMet = true;
+
+    //each rule has conditions, if they are all met, then mark
+    //continue processing the next condition, if all conditions are met
+    //set the target to the value of the rule
+    boolean isCustom = false;
+
+    //get the conditions associated with each rule
+    for (Condition condition : rule.getConditions()) {
+
+      // see ### functions in README.md (section Processor.java)
+      //we need to know if one of the functions is a custom function
+      //so that we know how to handle the value field - the custom indication
+      //may not be the first function listed in the function list
+      isCustom |= condition.isCustom();
+
+      processCondition(condition, originalData, ruleConstVal, isCustom);
+    }
+
+    if (conditionsMet && ruleConstVal != null && !isCustom) {
+
+      //all conditions of the rule were met, and there
+      //is a constant value associated with the rule, and this is
+      //not a custom rule, then set the data to the const value
+      //no need to continue processing other rules for this subfield
+      ruleData = ruleConstVal;
+      return true;
+    }
+    return false;
+  }
+
+  private void processCondition(Condition condition, String originalData, String ruleConstVal, boolean isCustom) {
+
+    if (condition.isLeader()) {
+
+      //the rule also has a condition on the leader field
+      //whose value also needs to be passed into any declared function
+      ruleData = record.getLeader();
+    }
+
+    for (NormalizationFunctions.Function function : condition.getFunctions()) {
+      if (!processFunction(function, condition, ruleConstVal, isCustom)) {
+        break;
+      }
+    }
+
+    if (!conditionsMet) {
+
+      //all conditions for this rule we not met, revert data to the originalData passed in.
+      ruleData = originalData;
+    }
+  }
+
+  /**
+   * @return false if the condition has failed and the remaining functions of the condition are skipped
+   */
+  private boolean processFunction(NormalizationFunctions.Function function, Condition condition,
+                                  String ruleConstVal, boolean isCustom) {
+
+    String valueParam = condition.getValue();
+    if (function == NormalizationFunctions.Function.CUSTOM) {
+      try {
+        if (valueParam == null) {
+          throw new NullPointerException("valueParam == null");
+        }
+        ruleData = (String) runScript(valueParam, ruleData, condition.isPure());
+      } catch(Exception e) {
+
+        //the function has thrown an exception meaning this condition has failed,
+        //hence this specific rule has failed
+        conditionsMet = false;
+        LOGGER.error(e.getMessage(), e);
+      }
+      return true;
+    }
+
+    String c = NormalizationFunctions.runFunction(function, ruleData, condition.getParsedParameter());
+    if (c == null || (valueParam != null && !c.equals(valueParam) && !isCustom)) {
+
+      //a regex_match did not match, or the output of the function on the data is compared to a
+      //constant value and differs - unless this is a custom javascript function in which case,
+      //the value holds the custom function
+      conditionsMet = false;
+      return false;
+    }
+    if (ruleConstVal == null) {
+
+      //if there is no val to use as a replacement , then assume the function
+      //is doing generating the needed value and set the data to the returned value
+      ruleData = c;
+    }
+    return true;
+  }
+
+  /**
+   * create the need part of the instance object based on the target and the string containing the
+   * content per subfield sets
+   * @param accessor - the target
+   * @param rememberComplexObj - the current object within the instance object we are currently populating
+   * this can be null if we are now creating a new object within the instance object
+   * @return whether a new object was created (boolean)
+   */
+  private boolean createNewObject(PathAccessor accessor, String data, Object[] rememberComplexObj) {
+
+    if (data.length() != 0) {
+      try {
+        return setValue(accessor, data, rememberComplexObj);
+      } catch (Exception e) {
+        LOGGER.error(e.getMessage(), e);
+        return false;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * set the data as the value of the target within the instance, timed on sampled records
+   * @return whether a new object was created
+   */
+  private boolean setValue(PathAccessor accessor, String data, Object[] rememberComplexObj) {
+    if (!sampled) {
+      return accessor.set(instance, createNewComplexObj, accessor.toValue(data), rememberComplexObj);
+    }
+    long start = System.nanoTime();
+    try {
+      return accessor.set(instance, createNewComplexObj, accessor.toValue(data), rememberComplexObj);
+    } finally {
+      buildNanos += System.nanoTime() - start;
+    }
+  }
+
+  /**
+   * run a custom javascript function on the data, timed on sampled records
+   */
+  private Object runScript(String script, String data, boolean pure) throws ScriptException {
+    if (!sampled) {
+      return pure ? JSManager.runPureJScript(script, data) : JSManager.runJScript(script, data);
+    }
+    long start = System.nanoTime();
+    try {
+      return pure ? JSManager.runPureJScript(script, data) : JSManager.runJScript(script, data);
+    } finally {
+      scriptNanos += System.nanoTime() - start;
+    }
+  }
+
+  /**
+   * escape mapped data, see {@link Escaper#escape(String)}, timed on sampled records
+   */
+  private String escape(String data) {
+    if (!sampled) {
+      return Escaper.escape(data);
+    }
+    long start = System.nanoTime();
+    String escaped = Escaper.escape(data);
+    escapeNanos += System.nanoTime() - start;
+    return escaped;
+  }
+
+  /**
+   * buffers2concat - list of string buffers, each one representing the data belonging to a set of
+   * subfields concatenated together, so for example, 2 sets of subfields will mean two entries in the list
+   * @return the generated data string
+   */
+  private String generateDataString(){
+    if (buffers2concat.size() == 1) {
+      return buffers2concat.get(0).toString();
+    }
+    finalData.setLength(0);
+    for (int i = 0; i < buffers2concat.size(); i++) {
+      StringBuilder sb = buffers2concat.get(i);
+      if (sb.length() > 0) {
+        if (finalData.length() > 0) {
+          finalData.append(separator);
+        }
+        finalData.append(sb);
+      }
+    }
+    return finalData.toString();
+  }
+
+  private char getSubfieldCode(int n) {
+    return expanded ? expandedCodes.charAt(n) : dataField.getCode(n);
+  }
+
+  private String getSubfieldData(int n) {
+    return expanded ? expandedData.get(n) : dataField.getData(n);
+  }
+
+  /**
+   * replace the existing subfields in the datafield with subfields generated on the data of the subfield
+   * for example: $aitaspa in 041 would be the language of the record. this can be split into two $a subfields
+   * $aita and $aspa so that it can be concatenated properly or even become two separate fields with the
+   * entity per repeated subfield flag
+   * the data is expanded by the implementing function (can be custom as well) - the implementing function
+   * receives data from ONE subfield at a time - two $a subfields will be processed separately.
+   * the expanded subfields replace the subfields of the field for the following mappings of the field
+   * @param splitConf - (add description)
+   * @throws ScriptException - (add description)
+   */
+  private void expandSubfields(SubFieldSplit splitConf) throws ScriptException {
+
+    int subfieldCount = expanded ? expandedData.size() : dataField.getSubfieldCount();
+    splitCodes.setLength(0);
+    splitSubfields.clear();
+    String func = splitConf.getType();
+    boolean isCustom = splitConf.isCustom();
+    String param = splitConf.getValue();
+    for (int i = 0; i < subfieldCount; i++) {
+
+      String data = getSubfieldData(i);
+      Iterator<?> splitData;
+
+      if (isCustom) {
+        try {
+
+          splitData = ((jdk.nashorn.api.scripting.ScriptObjectMirror) runScript(param, data, false))
+            .values()
+            .iterator();
+
+        } catch (Exception e) {
+          LOGGER.error("Expanding a field via subFieldSplit must return an array of results. ");
+          throw e;
+        }
+      } else {
+        splitData = NormalizationFunctions.runSplitFunction(func, data, param);
+      }
+
+      while (splitData.hasNext()) {
+        splitCodes.append(getSubfieldCode(i));
+        splitSubfields.add((String)splitData.next());
+      }
+    }
+    expandedCodes.setLength(0);
+    expandedCodes.append(splitCodes);
+    expandedData.clear();
+    for (int i = 0; i < splitSubfields.size(); i++) {
+      expandedData.add(splitSubfields.get(i));
+    }
+    expanded = true;
+  }
+}
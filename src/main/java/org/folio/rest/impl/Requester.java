@@ -1,15 +1,22 @@
 package org.folio.rest.impl;
 
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpPost;
-import org.apache.http.entity.StringEntity;
+import org.apache.http.entity.BufferedHttpEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.folio.rest.RestVerticle;
 
 import java.io.IOException;
+import java.net.URI;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 public class Requester {
 
@@ -17,26 +24,54 @@ public class Requester {
   private static final int CONNECTION_TIMEOUT = 300 * 1000; //keep connection open this long
   private static final int SO_TIMEOUT = 180 * 1000; //during data flow, if interrupted for 180sec, regard connection as
   // stalled/broken.
+  private static final int MAX_CONNECTIONS_PER_HOST = 20;
+  private static final int IDLE_CONNECTION_TIMEOUT = 60; //seconds a pooled connection may stay unused
 
-  public HttpResponse post(String url, StringBuilder data, Map<String, String> okapiHeaders) throws IOException {
-    RequestConfig config = RequestConfig.custom()
-      .setConnectTimeout(CONNECT_TIMEOUT)
-      .setConnectionRequestTimeout(CONNECTION_TIMEOUT)
-      .setSocketTimeout(SO_TIMEOUT)
-      .build();
-    try (CloseableHttpClient httpclient = HttpClientBuilder.create().setDefaultRequestConfig(config).build()) {
-      HttpPost httpPost = new HttpPost(url);
-      StringEntity stringEntity = new StringEntity(data.toString(), "UTF8");
-      httpPost.setEntity(stringEntity);
-      httpPost.setHeader(RestVerticle.OKAPI_HEADER_TENANT,
-        okapiHeaders.get(RestVerticle.OKAPI_HEADER_TENANT));
-      httpPost.setHeader(RestVerticle.OKAPI_HEADER_TOKEN,
-        okapiHeaders.get(RestVerticle.OKAPI_HEADER_TOKEN));
-      httpPost.setHeader(RestVerticle.OKAPI_USERID_HEADER,
-        okapiHeaders.get(RestVerticle.OKAPI_USERID_HEADER));
-      httpPost.setHeader("Content-type", "application/octet-stream");
-      httpPost.setHeader("Accept", "text/plain");
-      return httpclient.execute(httpPost);
+  //one keep-alive connection pool per storage module (scheme, host and port), shared by all uploads
+  private static final ConcurrentMap<String, CloseableHttpClient> CLIENTS = new ConcurrentHashMap<>();
+
+  /**
+   * post the body, for example a {@link CharSequenceEntity} streaming the UTF-8 bytes of text. The response
+   * entity is buffered so the connection is back in the pool when this returns.
+   */
+  public HttpResponse post(String url, HttpEntity body, Map<String, String> okapiHeaders) throws IOException {
+    HttpPost httpPost = new HttpPost(url);
+    httpPost.setEntity(body);
+    httpPost.setHeader(RestVerticle.OKAPI_HEADER_TENANT,
+      okapiHeaders.get(RestVerticle.OKAPI_HEADER_TENANT));
+    httpPost.setHeader(RestVerticle.OKAPI_HEADER_TOKEN,
+      okapiHeaders.get(RestVerticle.OKAPI_HEADER_TOKEN));
+    httpPost.setHeader(RestVerticle.OKAPI_USERID_HEADER,
+      okapiHeaders.get(RestVerticle.OKAPI_USERID_HEADER));
+    httpPost.setHeader("Content-type", "application/octet-stream");
+    httpPost.setHeader("Accept", "text/plain");
+    try (CloseableHttpResponse response = getClient(url).execute(httpPost)) {
+      HttpEntity entity = response.getEntity();
+      if (entity != null) {
+        //reading the entity to the end releases the connection for reuse, closing the response is then a no-op
+        response.setEntity(new BufferedHttpEntity(entity));
+      }
+      return response;
     }
   }
+
+  private static CloseableHttpClient getClient(String url) {
+    URI uri = URI.create(url);
+    String host = uri.getScheme() + "://" + uri.getAuthority();
+    return CLIENTS.computeIfAbsent(host, k -> {
+      PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+      connectionManager.setMaxTotal(MAX_CONNECTIONS_PER_HOST);
+      connectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS_PER_HOST);
+      RequestConfig config = RequestConfig.custom()
+        .setConnectTimeout(CONNECT_TIMEOUT)
+        .setConnectionRequestTimeout(CONNECTION_TIMEOUT)
+        .setSocketTimeout(SO_TIMEOUT)
+        .build();
+      return HttpClientBuilder.create()
+        .setConnectionManager(connectionManager)
+        .setDefaultRequestConfig(config)
+        .evictIdleConnections(IDLE_CONNECTION_TIMEOUT, TimeUnit.SECONDS)
+        .build();
+    });
+  }
 }
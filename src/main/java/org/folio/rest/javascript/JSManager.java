@@ -1,7 +1,10 @@
 package org.folio.rest.javascript;
 
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
 
 import javax.script.Bindings;
 import javax.script.Compilable;
@@ -14,6 +17,9 @@ import javax.script.SimpleBindings;
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 /**
  * @author shale
  *
@@ -22,18 +28,131 @@ public class JSManager {
 
   private static final Logger log = LogManager.getLogger(JSManager.class);
 
+  // compiled scripts kept for the process, the least recently used are dropped beyond this
+  private static final int MAX_CACHED_SCRIPTS = 500;
+  // results of a pure script kept for the process, the least recently used are dropped beyond this
+  private static final int MAX_MEMOIZED_RESULTS = 10000;
+  private static final Object NULL_RESULT = new Object();
+
   private static final ScriptEngine engine = new ScriptEngineManager().getEngineByName("nashorn");
-  private static final Map<Integer, CompiledScript> preCompiledJS = new HashMap<>();
+  // a compiled script can be run by several threads at once as long as each one has its own bindings,
+  // so the scripts are compiled once for the process and outlive the mapping threads of a load
+  // lookups do not lock, only compiling a missing script does
+  private static final Cache<String, CompiledScript> compiled =
+    CacheBuilder.newBuilder().maximumSize(MAX_CACHED_SCRIPTS).build();
+  // nashorn creates a global for a bindings object on its first use, each thread keeps its own - so the
+  // top level variables a script sets are still set for the next call on the thread, see README.md
+  private static final ThreadLocal<Bindings> bindings = ThreadLocal.withInitial(SimpleBindings::new);
+  private static final Cache<String, Cache<String, Object>> results =
+    CacheBuilder.newBuilder().maximumSize(MAX_CACHED_SCRIPTS).build();
+
+  // compile metrics, keyed by script text
+  private static final ConcurrentMap<String, CompileStats> compileStats = new ConcurrentHashMap<>();
+  private static final LongAdder memoHits = new LongAdder();
+  private static final LongAdder memoMisses = new LongAdder();
 
   public static Object runJScript(String jscript, String data) throws ScriptException {
-    CompiledScript script = preCompiledJS.get(jscript.hashCode());
+    CompiledScript script = compiled.getIfPresent(jscript);
     if(script == null){
+      script = compile(jscript);
+    }
+    // a script sees its input as DATA, the bindings of the thread are reused for every call
+    Bindings threadBindings = bindings.get();
+    threadBindings.put("DATA", data);
+    return script.eval(threadBindings);
+  }
+
+  private static CompiledScript compile(String jscript) throws ScriptException {
+    // compiled on the shared engine, once - other threads wait for the script instead of compiling it too
+    synchronized (engine) {
+      CompiledScript script = compiled.getIfPresent(jscript);
+      if (script != null) {
+        return script;
+      }
       log.debug("compiling JS function: " + jscript);
+      long start = System.nanoTime();
       script = ((Compilable) engine).compile(jscript);
-      preCompiledJS.put(jscript.hashCode(), script);
+      recordCompile(jscript, System.nanoTime() - start);
+      compiled.put(jscript, script);
+      return script;
+    }
+  }
+
+  /**
+   * run a script whose result depends on DATA only, results of input seen before are reused instead of
+   * running the script again. Failures are not remembered, and neither are results that could be changed
+   * by a caller - only strings, numbers, booleans and null are.
+   */
+  public static Object runPureJScript(String jscript, String data) throws ScriptException {
+    Cache<String, Object> scriptResults = results.getIfPresent(jscript);
+    if (scriptResults == null) {
+      scriptResults = results.asMap().computeIfAbsent(jscript,
+        k -> CacheBuilder.newBuilder().maximumSize(MAX_MEMOIZED_RESULTS).build());
+    }
+    Object result = scriptResults.getIfPresent(data);
+    if (result != null) {
+      memoHits.increment();
+      return result == NULL_RESULT ? null : result;
+    }
+    memoMisses.increment();
+    result = runJScript(jscript, data);
+    if (result == null || isImmutable(result)) {
+      scriptResults.put(data, result == null ? NULL_RESULT : result);
+    }
+    return result;
+  }
+
+  private static boolean isImmutable(Object result) {
+    return result instanceof String || result instanceof Number || result instanceof Boolean;
+  }
+
+  /**
+   * @return how often a pure script result was reused
+   */
+  public static long getMemoHits() {
+    return memoHits.sum();
+  }
+
+  /**
+   * @return how often a pure script had to run
+   */
+  public static long getMemoMisses() {
+    return memoMisses.sum();
+  }
+
+  /**
+   * @return the compile metrics per script text
+   */
+  public static Map<String, CompileStats> getCompileStats() {
+    return Collections.unmodifiableMap(compileStats);
+  }
+
+  private static void recordCompile(String jscript, long nanos) {
+    CompileStats stats = compileStats.get(jscript);
+    if (stats == null) {
+      if (compileStats.size() >= MAX_CACHED_SCRIPTS) {
+        return;
+      }
+      stats = compileStats.computeIfAbsent(jscript, k -> new CompileStats());
+    }
+    stats.compiles.increment();
+    stats.compileNanos.add(nanos);
+  }
+
+  /**
+   * How often a script was compiled - once, again after it was dropped from the cache - and the time spent on it.
+   */
+  public static class CompileStats {
+
+    private final LongAdder compiles = new LongAdder();
+    private final LongAdder compileNanos = new LongAdder();
+
+    public long getCompiles() {
+      return compiles.sum();
+    }
+
+    public long getCompileMillis() {
+      return compileNanos.sum() / 1_000_000;
     }
-    Bindings bindings = new SimpleBindings();
-    bindings.put("DATA", data);
-    return script.eval(bindings);
   }
 }
@@ -0,0 +1,85 @@
+package org.folio.rest.marc;
+
+import java.util.Arrays;
+
+/**
+ * A flyweight view of a data field of a {@link MarcRecord} - its indicators and the positions of its
+ * subfields. Subfield data is decoded only when asked for. A view is reused for many fields and must
+ * be confined to one thread.
+ */
+public class MarcDataField {
+
+  private MarcRecord record;
+  private char indicator1;
+  private char indicator2;
+  private int subfieldCount;
+  private int[] subfieldStarts = new int[16];
+  private int[] subfieldEnds = new int[16];
+
+  /**
+   * point the view at a field of the record, the view is valid until the record is wrapped again
+   */
+  public MarcDataField select(MarcRecord record, int field) {
+    this.record = record;
+    int start = record.getFieldStart(field);
+    int end = record.getFieldEnd(field);
+    indicator1 = start < end ? (char) (record.byteAt(start) & 0xFF) : ' ';
+    indicator2 = start + 1 < end ? (char) (record.byteAt(start + 1) & 0xFF) : ' ';
+    subfieldCount = 0;
+    //content before the first delimiter is not part of any subfield
+    for (int i = start + 2; i < end; i++) {
+      if (record.byteAt(i) != MarcRecord.SUBFIELD_DELIMITER) {
+        continue;
+      }
+      if (subfieldCount > 0) {
+        subfieldEnds[subfieldCount - 1] = i;
+      }
+      if (subfieldCount == subfieldStarts.length) {
+        subfieldStarts = Arrays.copyOf(subfieldStarts, subfieldCount * 2);
+        subfieldEnds = Arrays.copyOf(subfieldEnds, subfieldCount * 2);
+      }
+      //the code, the data follows it
+      subfieldStarts[subfieldCount++] = i + 1;
+    }
+    if (subfieldCount > 0) {
+      subfieldEnds[subfieldCount - 1] = end;
+    }
+    return this;
+  }
+
+  public char getIndicator1() {
+    return indicator1;
+  }
+
+  public char getIndicator2() {
+    return indicator2;
+  }
+
+  public int getSubfieldCount() {
+    return subfieldCount;
+  }
+
+  /**
+   * @return the code of subfield n, 0 for a delimiter at the end of the field
+   */
+  public char getCode(int n) {
+    int start = subfieldStarts[n];
+    return start < subfieldEnds[n] ? (char) (record.byteAt(start) & 0xFF) : 0;
+  }
+
+  /**
+   * @return the data of subfield n decoded in the record's character set
+   */
+  public String getData(int n) {
+    int start = getDataStart(n);
+    return record.decode(start, subfieldEnds[n] - start);
+  }
+
+  int getDataStart(int n) {
+    return Math.min(subfieldStarts[n] + 1, subfieldEnds[n]);
+  }
+
+  int getDataEnd(int n) {
+    return subfieldEnds[n];
+  }
+}
@@ -0,0 +1,237 @@
+package org.folio.rest.marc;
+
+import org.folio.rest.struct.ByteBuilder;
+
+/**
+ * Writes a {@link MarcRecord} as MARC-in-JSON, escaped for the text format of a postgres COPY, in a
+ * single pass over the record's bytes. The output is byte for byte what marc4j's MarcJsonWriter
+ * produces once encoded by a JsonObject and escaped by
+ * {@link org.folio.rest.utils.Escaper#escapeSqlCopyFrom(String)}:
+ * <pre>{"leader":"...","fields":[{"001":"..."},{"245":{"subfields":[{"a":"..."}],"ind1":"1","ind2":"0"}}]}</pre>
+ * Valid UTF-8 content is copied as is, ISO-8859-1 content is transcoded byte by byte, only malformed
+ * UTF-8 goes through a String. A writer is reused for many records and must be confined to one thread.
+ */
+public class MarcJsonCopyWriter {
+
+  private static final byte[] HEX = "0123456789ABCDEF".getBytes();
+
+  private final MarcDataField dataField = new MarcDataField();
+
+  /**
+   * write the record, it must have been wrapped without skipping fields
+   */
+  public void write(MarcRecord record, ByteBuilder out) {
+    out.write('{');
+    writeKey("leader", out);
+    writeString(record.getLeader(), out);
+    out.write(',');
+    writeKey("fields", out);
+    out.write('[');
+    boolean first = true;
+    //control fields come first, as in a marc4j record
+    for (int field = 0; field < record.getFieldCount(); field++) {
+      if (record.isControlField(field)) {
+        first = writeFieldStart(record, field, first, out);
+        writeBytes(record, record.getFieldStart(field), record.getFieldEnd(field), out);
+        out.write('}');
+      }
+    }
+    for (int field = 0; field < record.getFieldCount(); field++) {
+      if (!record.isControlField(field)) {
+        first = writeFieldStart(record, field, first, out);
+        writeDataField(record, field, out);
+        out.write('}');
+      }
+    }
+    out.write(']');
+    out.write('}');
+  }
+
+  private static boolean writeFieldStart(MarcRecord record, int field, boolean first, ByteBuilder out) {
+    if (!first) {
+      out.write(',');
+    }
+    out.write('{');
+    writeKey(record.getTagString(field), out);
+    return false;
+  }
+
+  private void writeDataField(MarcRecord record, int field, ByteBuilder out) {
+    dataField.select(record, field);
+    out.write('{');
+    writeKey("subfields", out);
+    out.write('[');
+    for (int n = 0; n < dataField.getSubfieldCount(); n++) {
+      if (n > 0) {
+        out.write(',');
+      }
+      out.write('{');
+      writeKey(String.valueOf(dataField.getCode(n)), out);
+      writeBytes(record, dataField.getDataStart(n), dataField.getDataEnd(n), out);
+      out.write('}');
+    }
+    out.write(']');
+    out.write(',');
+    writeKey("ind1", out);
+    writeString(String.valueOf(dataField.getIndicator1()), out);
+    out.write(',');
+    writeKey("ind2", out);
+    writeString(String.valueOf(dataField.getIndicator2()), out);
+    out.write('}');
+  }
+
+  private static void writeKey(String key, ByteBuilder out) {
+    writeString(key, out);
+    out.write(':');
+  }
+
+  /**
+   * write the bytes of the record between from and to as a json string
+   */
+  private static void writeBytes(MarcRecord record, int from, int to, ByteBuilder out) {
+    boolean utf8 = record.isUtf8();
+    if (utf8 && !isValidUtf8(record, from, to)) {
+      //leave the replacement of malformed input to the decoder
+      writeString(record.decode(from, to - from), out);
+      return;
+    }
+    out.write('"');
+    for (int i = from; i < to; i++) {
+      int b = record.byteAt(i) & 0xFF;
+      if (b < 0x80) {
+        writeAscii(b, out);
+      } else if (utf8) {
+        out.write(b);
+      } else {
+        out.write(0xC0 | (b >> 6));
+        out.write(0x80 | (b & 0x3F));
+      }
+    }
+    out.write('"');
+  }
+
+  private static void writeString(String s, ByteBuilder out) {
+    out.write('"');
+    int start = 0;
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c < 0x80) {
+        if (start < i) {
+          out.append(s.substring(start, i));
+        }
+        writeAscii(c, out);
+        start = i + 1;
+      }
+    }
+    if (start < s.length()) {
+      out.append(s.substring(start));
+    }
+    out.write('"');
+  }
+
+  /**
+   * write an ascii character escaped for json, and the result escaped for COPY
+   */
+  private static void writeAscii(int c, ByteBuilder out) {
+    switch (c) {
+      case '"':
+        out.write('\\');
+        out.write('\\');
+        out.write('"');
+        return;
+      case '\\':
+        out.write('\\');
+        out.write('\\');
+        out.write('\\');
+        out.write('\\');
+        return;
+      case '|':
+        out.write('\\');
+        out.write('|');
+        return;
+      case '\b':
+        writeShortEscape('b', out);
+        return;
+      case '\t':
+        writeShortEscape('t', out);
+        return;
+      case '\n':
+        writeShortEscape('n', out);
+        return;
+      case '\f':
+        writeShortEscape('f', out);
+        return;
+      case '\r':
+        writeShortEscape('r', out);
+        return;
+      default:
+        if (c < 0x20) {
+          writeShortEscape('u', out);
+          out.write('0');
+          out.write('0');
+          out.write(HEX[c >> 4]);
+          out.write(HEX[c & 0xF]);
+        } else {
+          out.write(c);
+        }
+    }
+  }
+
+  private static void writeShortEscape(char c, ByteBuilder out) {
+    out.write('\\');
+    out.write('\\');
+    out.write(c);
+  }
+
+  /**
+   * @return whether the bytes are well formed UTF-8 as accepted by the java decoder (no overlong forms,
+   * surrogates or code points above U+10FFFF)
+   */
+  static boolean isValidUtf8(MarcRecord record, int from, int to) {
+    int i = from;
+    while (i < to) {
+      int b = record.byteAt(i) & 0xFF;
+      if (b < 0x80) {
+        i++;
+        continue;
+      }
+      int continuations;
+      int min = 0x80;
+      int max = 0xBF;
+      if (b >= 0xC2 && b <= 0xDF) {
+        continuations = 1;
+      } else if (b >= 0xE0 && b <= 0xEF) {
+        continuations = 2;
+        if (b == 0xE0) {
+          min = 0xA0;
+        } else if (b == 0xED) {
+          max = 0x9F;
+        }
+      } else if (b >= 0xF0 && b <= 0xF4) {
+        continuations = 3;
+        if (b == 0xF0) {
+          min = 0x90;
+        } else if (b == 0xF4) {
+          max = 0x8F;
+        }
+      } else {
+        return false;
+      }
+      if (i + continuations >= to) {
+        return false;
+      }
+      int second = record.byteAt(i + 1) & 0xFF;
+      if (second < min || second > max) {
+        return false;
+      }
+      for (int k = 2; k <= continuations; k++) {
+        int next = record.byteAt(i + k) & 0xFF;
+        if (next < 0x80 || next > 0xBF) {
+          return false;
+        }
+      }
+      i += continuations + 1;
+    }
+    return true;
+  }
+}
@@ -0,0 +1,217 @@
+package org.folio.rest.marc;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * A flyweight view of a binary MARC21 record. Wrapping a record parses its leader and directory into
+ * reusable arrays, field content stays in the underlying buffer and is only decoded into a String
+ * when asked for - fields and subfields no rule consumes cost nothing. Records with leader/09 'a'
+ * are decoded as UTF-8, others as ISO-8859-1, as marc4j's MarcStreamReader does.
+ * A view is reused for many records and must be confined to one thread.
+ */
+public class MarcRecord {
+
+  public static final byte RECORD_TERMINATOR = 0x1D;
+  public static final byte FIELD_TERMINATOR = 0x1E;
+  public static final byte SUBFIELD_DELIMITER = 0x1F;
+
+  static final int LEADER_LENGTH = 24;
+  private static final int DIRECTORY_ENTRY_LENGTH = 12;
+  private static final int CHAR_CODING_SCHEME = 9;
+  private static final int BASE_ADDRESS = 12;
+
+  //numeric tags are looked up in the mapping plan on every field, share their strings
+  private static final String[] TAGS = new String[1000];
+  static {
+    for (int i = 0; i < TAGS.length; i++) {
+      TAGS[i] = String.format("%03d", i);
+    }
+  }
+
+  private ByteBuffer buffer;
+  private int start;
+  private Charset charset;
+  private String leader;
+  private int fieldCount;
+  private int[] tags = new int[64];
+  private int[] directoryEntries = new int[64];
+  private int[] fieldStarts = new int[64];
+  private int[] fieldEnds = new int[64];
+  private byte[] scratch = new byte[256];
+
+  /**
+   * point the view at the record between the position and the limit of the buffer, the buffer must
+   * not change while it is wrapped
+   * @throws IllegalArgumentException if the leader or the directory is broken
+   */
+  public MarcRecord wrap(ByteBuffer buffer) {
+    return wrap(buffer, null);
+  }
+
+  /**
+   * point the view at the record, keeping only the fields with the given numeric tags (and fields with
+   * non numeric tags) - the directory entries of other fields are skipped without being parsed
+   * @param keptTags - the numeric tags to keep, null to keep all fields
+   * @throws IllegalArgumentException if the leader or a kept directory entry is broken
+   */
+  public MarcRecord wrap(ByteBuffer buffer, BitSet keptTags) {
+    this.buffer = buffer;
+    this.start = buffer.position();
+    this.leader = null;
+    this.fieldCount = 0;
+    int length = buffer.remaining();
+    if (length < LEADER_LENGTH) {
+      throw new IllegalArgumentException("record shorter than a leader: " + length + " bytes");
+    }
+    charset = byteAt(CHAR_CODING_SCHEME) == 'a' ? StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1;
+    int baseAddress = number(BASE_ADDRESS, 5);
+    if (baseAddress < LEADER_LENGTH + 1 || baseAddress > length
+      || (baseAddress - LEADER_LENGTH - 1) % DIRECTORY_ENTRY_LENGTH != 0) {
+      throw new IllegalArgumentException("invalid base address of data: " + baseAddress);
+    }
+    int entries = (baseAddress - LEADER_LENGTH - 1) / DIRECTORY_ENTRY_LENGTH;
+    int kept = 0;
+    if (tags.length < entries) {
+      int capacity = Math.max(entries, tags.length * 2);
+      tags = Arrays.copyOf(tags, capacity);
+      directoryEntries = Arrays.copyOf(directoryEntries, capacity);
+      fieldStarts = Arrays.copyOf(fieldStarts, capacity);
+      fieldEnds = Arrays.copyOf(fieldEnds, capacity);
+    }
+    for (int i = 0; i < entries; i++) {
+      int entry = LEADER_LENGTH + i * DIRECTORY_ENTRY_LENGTH;
+      int tag = number(entry, 3);
+      if (keptTags != null && tag >= 0 && !keptTags.get(tag)) {
+        continue;
+      }
+      int fieldLength = number(entry + 3, 4);
+      int fieldOffset = number(entry + 7, 5);
+      int fieldStart = baseAddress + fieldOffset;
+      int fieldEnd = fieldStart + fieldLength;
+      if (fieldLength < 0 || fieldOffset < 0 || fieldEnd > length) {
+        throw new IllegalArgumentException("invalid directory entry " + i);
+      }
+      if (fieldLength > 0 && byteAt(fieldEnd - 1) == FIELD_TERMINATOR) {
+        fieldEnd--;
+      }
+      tags[kept] = tag;
+      directoryEntries[kept] = i;
+      fieldStarts[kept] = fieldStart;
+      fieldEnds[kept++] = fieldEnd;
+    }
+    fieldCount = kept;
+    return this;
+  }
+
+  public String getLeader() {
+    if (leader == null) {
+      leader = decode(0, LEADER_LENGTH, StandardCharsets.ISO_8859_1);
+    }
+    return leader;
+  }
+
+  public int getFieldCount() {
+    return fieldCount;
+  }
+
+  /**
+   * @return the numeric tag of the field, -1 if the tag is not numeric
+   */
+  public int getTag(int field) {
+    return tags[field];
+  }
+
+  public String getTagString(int field) {
+    int tag = tags[field];
+    if (tag >= 0) {
+      return TAGS[tag];
+    }
+    return decode(LEADER_LENGTH + directoryEntries[field] * DIRECTORY_ENTRY_LENGTH, 3, StandardCharsets.ISO_8859_1);
+  }
+
+  /**
+   * @return whether the field is a control field (tag 00X) - control fields have no indicators or subfields
+   */
+  public boolean isControlField(int field) {
+    int tag = tags[field];
+    if (tag >= 0) {
+      return tag < 10;
+    }
+    int entry = LEADER_LENGTH + directoryEntries[field] * DIRECTORY_ENTRY_LENGTH;
+    return byteAt(entry) == '0' && byteAt(entry + 1) == '0';
+  }
+
+  /**
+   * @return the content of the field without its terminator, for a control field its data
+   */
+  public String getData(int field) {
+    return decode(fieldStarts[field], fieldEnds[field] - fieldStarts[field], charset);
+  }
+
+  /**
+   * @return a copy of the bytes of the record, including the fields that were skipped
+   */
+  public byte[] getBytes() {
+    byte[] bytes = new byte[buffer.limit() - start];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = buffer.get(start + i);
+    }
+    return bytes;
+  }
+
+  boolean isUtf8() {
+    return charset == StandardCharsets.UTF_8;
+  }
+
+  int getFieldStart(int field) {
+    return fieldStarts[field];
+  }
+
+  int getFieldEnd(int field) {
+    return fieldEnds[field];
+  }
+
+  byte byteAt(int offset) {
+    return buffer.get(start + offset);
+  }
+
+  /**
+   * decode bytes of the record in its character set
+   */
+  String decode(int offset, int length) {
+    return decode(offset, length, charset);
+  }
+
+  private String decode(int offset, int length, Charset cs) {
+    if (buffer.hasArray()) {
+      return new String(buffer.array(), buffer.arrayOffset() + start + offset, length, cs);
+    }
+    //mapped or read only buffers - copy into the scratch array, Strings copy anyway
+    if (scratch.length < length) {
+      scratch = new byte[Math.max(length, scratch.length * 2)];
+    }
+    for (int i = 0; i < length; i++) {
+      scratch[i] = buffer.get(start + offset + i);
+    }
+    return new String(scratch, 0, length, cs);
+  }
+
+  /**
+   * @return the number of ascii digits at offset, -1 if one of them is not a digit
+   */
+  private int number(int offset, int digits) {
+    int n = 0;
+    for (int i = 0; i < digits; i++) {
+      byte b = byteAt(offset + i);
+      if (b < '0' || b > '9') {
+        return -1;
+      }
+      n = n * 10 + (b - '0');
+    }
+    return n;
+  }
+}
@@ -0,0 +1,80 @@
+package org.folio.rest.marc;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Splits a stream of binary marc records into the bytes of each record without decoding them. A record
+ * is framed by the record length in its leader, when the leader is broken or the framed record does
+ * not end with a record terminator (0x1D) the record ends at the next terminator instead - the same
+ * framing as {@link org.folio.rest.service.MappedMarcFile}.
+ */
+public class MarcRecordReader {
+
+  private static final int RECORD_LENGTH_DIGITS = 5;
+  private static final int MAX_RECORD_LENGTH = 99999;
+
+  private final InputStream in;
+  private final ByteArrayOutputStream unframed = new ByteArrayOutputStream();
+
+  public MarcRecordReader(InputStream in) {
+    this.in = in.markSupported() ? in : new BufferedInputStream(in, MAX_RECORD_LENGTH + 1);
+  }
+
+  /**
+   * @return the bytes of the next record, including its terminator, null at the end of the stream
+   */
+  public byte[] next() throws IOException {
+    in.mark(MAX_RECORD_LENGTH + 1);
+    byte[] lengthDigits = new byte[RECORD_LENGTH_DIGITS];
+    int read = readFully(lengthDigits, 0, RECORD_LENGTH_DIGITS);
+    if (read == 0) {
+      return null;
+    }
+    int recordLength = read == RECORD_LENGTH_DIGITS ? recordLength(lengthDigits) : -1;
+    if (recordLength > RECORD_LENGTH_DIGITS) {
+      byte[] record = Arrays.copyOf(lengthDigits, recordLength);
+      read += readFully(record, RECORD_LENGTH_DIGITS, recordLength - RECORD_LENGTH_DIGITS);
+      if (read == recordLength && record[recordLength - 1] == MarcRecord.RECORD_TERMINATOR) {
+        return record;
+      }
+    }
+    //broken leader - the record ends at the next terminator
+    in.reset();
+    unframed.reset();
+    int b;
+    while ((b = in.read()) != -1) {
+      unframed.write(b);
+      if (b == MarcRecord.RECORD_TERMINATOR) {
+        break;
+      }
+    }
+    return unframed.toByteArray();
+  }
+
+  private int readFully(byte[] b, int off, int len) throws IOException {
+    int total = 0;
+    while (total < len) {
+      int n = in.read(b, off + total, len - total);
+      if (n < 0) {
+        break;
+      }
+      total += n;
+    }
+    return total;
+  }
+
+  private static int recordLength(byte[] digits) {
+    int n = 0;
+    for (byte b : digits) {
+      if (b < '0' || b > '9') {
+        return -1;
+      }
+      n = n * 10 + (b - '0');
+    }
+    return n;
+  }
+}
@@ -0,0 +1,192 @@
+package org.folio.rest.rules;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.folio.rest.impl.NormalizationFunctions;
+
+/**
+ * A decision table for a list of rules that only compare selected characters to constants - every
+ * condition is a single char_select with a value and every rule declares the value to map, like the
+ * type rules of the 008 field. Instead of testing the rules one by one, the characters at each distinct
+ * position are looked up once and the bit masks of the rules accepting them are intersected, the lowest
+ * remaining bit is the first rule whose conditions are all met.
+ * <p>
+ * The result is the same as walking the rules: a condition following a leader condition of the same
+ * rule is tested against the leader, and a position beyond the data selects all of the data.
+ * Immutable, shared by all mapping threads.
+ */
+public class CharSelectTable {
+
+  // characters below this are looked up in an array, others in a map
+  private static final int CHAR_TABLE_SIZE = 256;
+  private static final int WHOLE_DATA = -1;
+
+  private final int words;
+  // per word, the rules that can match at all
+  private final long[] possible;
+  // per position: where the chars are selected from
+  private final boolean[] leader;
+  private final int[] begin;
+  private final int[] end;
+  // per position and word: the rules without a condition on this position
+  private final long[][] unconditional;
+  // per position, char and word: the rules accepting this single char
+  private final long[][][] byChar;
+  // per position: the rules accepting a selection that is not a single char in the table
+  private final List<Map<String, long[]>> byString;
+  private boolean usesLeader;
+
+  private CharSelectTable(int ruleCount, int positionCount) {
+    words = (ruleCount + 63) / 64;
+    possible = new long[words];
+    leader = new boolean[positionCount];
+    begin = new int[positionCount];
+    end = new int[positionCount];
+    unconditional = new long[positionCount][words];
+    byChar = new long[positionCount][][];
+    byString = new ArrayList<>(positionCount);
+    for (int k = 0; k < positionCount; k++) {
+      byString.add(new HashMap<>());
+    }
+  }
+
+  /**
+   * @return the table for the rules, null if a rule has a condition that is not a single
+   * char_select with a value, or has no value of its own
+   */
+  public static CharSelectTable compile(Rule[] rules) {
+    if (rules == null || rules.length == 0) {
+      return null;
+    }
+    // the distinct positions in order of appearance, and per rule the value required at a position
+    Map<String, Integer> positions = new LinkedHashMap<>();
+    List<int[]> ranges = new ArrayList<>();
+    List<Boolean> leaders = new ArrayList<>();
+    List<Map<Integer, String>> required = new ArrayList<>(rules.length);
+    for (Rule rule : rules) {
+      if (rule.getValue() == null) {
+        return null;
+      }
+      Map<Integer, String> values = new HashMap<>();
+      boolean onLeader = false;
+      boolean impossible = false;
+      for (Condition condition : rule.getConditions()) {
+        if (condition.getFunctions().length != 1
+          || condition.getFunctions()[0] != NormalizationFunctions.Function.CHAR_SELECT
+          || condition.getValue() == null) {
+          return null;
+        }
+        // once a leader condition is met the rest of the rule is tested against the leader
+        onLeader |= condition.isLeader();
+        int[] range = NormalizationFunctions.charSelectRange(condition.getParameter());
+        if (range == null) {
+          range = new int[] {WHOLE_DATA, WHOLE_DATA};
+        }
+        String key = (onLeader ? "LDR:" : "") + range[0] + "-" + range[1];
+        Integer position = positions.get(key);
+        if (position == null) {
+          position = positions.size();
+          positions.put(key, position);
+          ranges.add(range);
+          leaders.add(onLeader);
+        }
+        String previous = values.put(position, condition.getValue());
+        // two different values at the same position, the rule can never match
+        impossible |= previous != null && !previous.equals(condition.getValue());
+      }
+      required.add(impossible ? null : values);
+    }
+
+    CharSelectTable table = new CharSelectTable(rules.length, positions.size());
+    for (int k = 0; k < positions.size(); k++) {
+      table.leader[k] = leaders.get(k);
+      table.begin[k] = ranges.get(k)[0];
+      table.end[k] = ranges.get(k)[1];
+      table.usesLeader |= table.leader[k];
+    }
+    for (int r = 0; r < rules.length; r++) {
+      Map<Integer, String> values = required.get(r);
+      if (values == null) {
+        continue;
+      }
+      int word = r / 64;
+      long bit = 1L << (r % 64);
+      table.possible[word] |= bit;
+      for (int k = 0; k < positions.size(); k++) {
+        String value = values.get(k);
+        if (value == null) {
+          table.unconditional[k][word] |= bit;
+        } else {
+          table.accepting(k, value)[word] |= bit;
+        }
+      }
+    }
+    return table;
+  }
+
+  private long[] accepting(int position, String value) {
+    if (value.length() == 1 && value.charAt(0) < CHAR_TABLE_SIZE) {
+      if (byChar[position] == null) {
+        byChar[position] = new long[CHAR_TABLE_SIZE][];
+      }
+      long[][] chars = byChar[position];
+      if (chars[value.charAt(0)] == null) {
+        chars[value.charAt(0)] = new long[words];
+      }
+      return chars[value.charAt(0)];
+    }
+    return byString.get(position).computeIfAbsent(value, v -> new long[words]);
+  }
+
+  /**
+   * @return true if a position is selected from the leader
+   */
+  public boolean usesLeader() {
+    return usesLeader;
+  }
+
+  /**
+   * @param data - the data the rules are applied to, not null
+   * @param leaderData - the leader of the record, may be null if {@link #usesLeader()} is false
+   * @return the index of the first rule whose conditions are all met, -1 if there is none
+   */
+  public int match(String data, String leaderData) {
+    for (int word = 0; word < words; word++) {
+      long candidates = possible[word];
+      for (int k = 0; k < leader.length && candidates != 0; k++) {
+        candidates &= unconditional[k][word] | accepting(k, leader[k] ? leaderData : data, word);
+      }
+      if (candidates != 0) {
+        return word * 64 + Long.numberOfTrailingZeros(candidates);
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @return the rules accepting the chars selected at the position
+   */
+  private long accepting(int position, String data, int word) {
+    int from = begin[position];
+    int to = end[position];
+    if (from == WHOLE_DATA || to > data.length()) {
+      from = 0;
+      to = data.length();
+    }
+    if (to - from == 1 && data.charAt(from) < CHAR_TABLE_SIZE) {
+      long[][] chars = byChar[position];
+      long[] rules = chars == null ? null : chars[data.charAt(from)];
+      return rules == null ? 0 : rules[word];
+    }
+    Map<String, long[]> strings = byString.get(position);
+    if (strings.isEmpty()) {
+      return 0;
+    }
+    long[] rules = strings.get(data.substring(from, to));
+    return rules == null ? 0 : rules[word];
+  }
+}
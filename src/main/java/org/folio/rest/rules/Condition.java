@@ -0,0 +1,88 @@
+package org.folio.rest.rules;
+
+import java.util.regex.Pattern;
+
+import org.folio.rest.impl.NormalizationFunctions;
+
+/**
+ * A single condition of a {@link Rule}, compiled from a rules.json condition object.
+ * The comma delimited "type" list is split and resolved to functions once, the parameter is parsed -
+ * and compiled for a regex function - once.
+ */
+public class Condition {
+
+  private final NormalizationFunctions.Function[] functions;
+  private final boolean custom;
+  private final boolean leader;
+  private final String value;
+  private final NormalizationFunctions.Parameter parameter;
+  private final boolean pure;
+
+  Condition(NormalizationFunctions.Function[] functions, boolean custom, boolean leader, String value,
+            NormalizationFunctions.Parameter parameter, boolean pure) {
+    this.functions = functions;
+    this.custom = custom;
+    this.leader = leader;
+    this.value = value;
+    this.parameter = parameter;
+    this.pure = pure;
+  }
+
+  /**
+   * @return the resolved functions in declaration order, an entry is null if the function name is unknown
+   */
+  public NormalizationFunctions.Function[] getFunctions() {
+    return functions;
+  }
+
+  /**
+   * @return true if one of the functions of this condition is a custom javascript function
+   */
+  public boolean isCustom() {
+    return custom;
+  }
+
+  /**
+   * @return true if the condition should be tested against the leader and not the field data
+   */
+  public boolean isLeader() {
+    return leader;
+  }
+
+  public String getValue() {
+    return value;
+  }
+
+  public String getParameter() {
+    return parameter.getValue();
+  }
+
+  /**
+   * @return the parameter as parsed for the functions
+   */
+  public NormalizationFunctions.Parameter getParsedParameter() {
+    return parameter;
+  }
+
+  /**
+   * @return true if the custom function is declared "pure" - its result depends on its input only, so
+   * results may be reused for repeated input
+   */
+  public boolean isPure() {
+    return pure;
+  }
+
+  /**
+   * @return the compiled parameter if one of the functions is a regex function, null otherwise
+   */
+  public Pattern getPattern() {
+    return parameter.getPattern();
+  }
+
+  /**
+   * @return the replacement of a regex_replace function, an empty string if none is declared
+   */
+  public String getReplacement() {
+    return parameter.getReplacement();
+  }
+}
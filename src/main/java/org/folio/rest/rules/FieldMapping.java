@@ -0,0 +1,33 @@
+package org.folio.rest.rules;
+
+/**
+ * A single entry in the array of mappings declared for a data field. If no "entity" was declared
+ * the entry holds a single target mapping - the entry itself.
+ */
+public class FieldMapping {
+
+  private final TargetMapping[] targets;
+  private final boolean entityRequested;
+  private final boolean entityPerRepeatedSubfield;
+
+  FieldMapping(TargetMapping[] targets, boolean entityRequested, boolean entityPerRepeatedSubfield) {
+    this.targets = targets;
+    this.entityRequested = entityRequested;
+    this.entityPerRepeatedSubfield = entityPerRepeatedSubfield;
+  }
+
+  public TargetMapping[] getTargets() {
+    return targets;
+  }
+
+  /**
+   * @return true if the targets were declared within an "entity" array
+   */
+  public boolean isEntityRequested() {
+    return entityRequested;
+  }
+
+  public boolean isEntityPerRepeatedSubfield() {
+    return entityPerRepeatedSubfield;
+  }
+}
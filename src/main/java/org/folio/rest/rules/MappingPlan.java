@@ -0,0 +1,215 @@
+package org.folio.rest.rules;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.apache.commons.lang.BooleanUtils;
+import org.folio.rest.impl.NormalizationFunctions;
+import org.folio.rest.service.ProcessorHelper;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Immutable execution plan compiled from a tenant's rules.json. The processor walks the plan
+ * instead of re-reading the json for every field of every record, so it can be shared across
+ * records and threads.
+ */
+public class MappingPlan {
+
+  private static final String VALUE = "value";
+  private static final int TAGS = 1000;
+
+  private final Map<String, TargetMapping[]> controlFieldMappings;
+  private final Map<String, FieldMapping[]> dataFieldMappings;
+  private final BitSet referencedTags;
+
+  private MappingPlan(Map<String, TargetMapping[]> controlFieldMappings,
+                      Map<String, FieldMapping[]> dataFieldMappings, BitSet referencedTags) {
+    this.controlFieldMappings = controlFieldMappings;
+    this.dataFieldMappings = dataFieldMappings;
+    this.referencedTags = referencedTags;
+  }
+
+  /**
+   * @return the numeric tags (000 - 999) that have mappings, fields with other numeric tags can be
+   * skipped without being decoded. Do not modify.
+   */
+  public BitSet getReferencedTags() {
+    return referencedTags;
+  }
+
+  /**
+   * @return the mappings to apply to a control field with this tag, null if there are none
+   */
+  public TargetMapping[] getControlFieldMappings(String tag) {
+    return controlFieldMappings.get(tag);
+  }
+
+  /**
+   * @return the mappings to apply to a data field with this tag, null if there are none
+   */
+  public FieldMapping[] getDataFieldMappings(String tag) {
+    return dataFieldMappings.get(tag);
+  }
+
+  /**
+   * Compile a rules file into a plan.
+   * @param rulesFile - the rules.json content
+   * @return the plan
+   * @throws IllegalArgumentException if the rules file does not have the expected structure
+   */
+  public static MappingPlan compile(JsonObject rulesFile) {
+    Map<String, TargetMapping[]> control = new HashMap<>();
+    Map<String, FieldMapping[]> data = new HashMap<>();
+    BitSet referencedTags = new BitSet(TAGS);
+    for (String tag : rulesFile.fieldNames()) {
+      if (tag.matches("[0-9]{3}")) {
+        referencedTags.set(Integer.parseInt(tag));
+      }
+      try {
+        JsonArray mappings = rulesFile.getJsonArray(tag);
+        TargetMapping[] targets = new TargetMapping[mappings.size()];
+        FieldMapping[] fields = new FieldMapping[mappings.size()];
+        for (int i = 0; i < mappings.size(); i++) {
+          JsonObject mapping = mappings.getJsonObject(i);
+          targets[i] = compileTarget(mapping);
+          fields[i] = compileField(mapping, targets[i]);
+        }
+        control.put(tag, targets);
+        data.put(tag, fields);
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException(tag + ": " + e.getMessage(), e);
+      } catch (RuntimeException e) {
+        throw new IllegalArgumentException(tag + ": unexpected structure - " + e.getMessage(), e);
+      }
+    }
+    return new MappingPlan(control, data, referencedTags);
+  }
+
+  private static FieldMapping compileField(JsonObject mapping, TargetMapping self) {
+    JsonArray entity = mapping.getJsonArray("entity");
+    boolean entityPerRepeatedSubfield = BooleanUtils.isTrue(mapping.getBoolean("entityPerRepeatedSubfield"));
+    if (entity == null) {
+      return new FieldMapping(new TargetMapping[] { self }, false, entityPerRepeatedSubfield);
+    }
+    TargetMapping[] targets = new TargetMapping[entity.size()];
+    for (int i = 0; i < entity.size(); i++) {
+      targets[i] = compileTarget(entity.getJsonObject(i));
+    }
+    return new FieldMapping(targets, true, entityPerRepeatedSubfield);
+  }
+
+  private static TargetMapping compileTarget(JsonObject mapping) {
+    String target = mapping.getString("target");
+    JsonArray subfields = mapping.getJsonArray("subfield");
+    JsonArray rules = mapping.getJsonArray("rules");
+    JsonArray delimiters = mapping.getJsonArray("subFieldDelimiter");
+    JsonObject splitter = mapping.getJsonObject("subFieldSplit");
+
+    if (target == null && mapping.getJsonArray("entity") == null) {
+      throw new IllegalArgumentException("no target declared in " + mapping.encode());
+    }
+
+    String subfieldCodes = null;
+    if (subfields != null) {
+      subfieldCodes = singleCharCodes(subfields);
+    }
+
+    String[] groupDelimiters = null;
+    String separator = null;
+    Map<Character, Integer> groups = new LinkedHashMap<>();
+    if (delimiters != null) {
+      groupDelimiters = new String[delimiters.size()];
+      for (int i = 0; i < delimiters.size(); i++) {
+        JsonObject delimiter = delimiters.getJsonObject(i);
+        groupDelimiters[i] = delimiter.getString(VALUE);
+        String codes = singleCharCodes(delimiter.getJsonArray("subfields"));
+        if (delimiter.getJsonArray("subfields").size() == 0) {
+          separator = groupDelimiters[i];
+        }
+        for (int c = 0; c < codes.length(); c++) {
+          groups.put(codes.charAt(c), i);
+        }
+      }
+    }
+    char[] delimitedCodes = new char[groups.size()];
+    int[] delimiterGroups = new int[groups.size()];
+    int g = 0;
+    for (Map.Entry<Character, Integer> entry : groups.entrySet()) {
+      delimitedCodes[g] = entry.getKey();
+      delimiterGroups[g++] = entry.getValue();
+    }
+
+    return new TargetMapping(mapping, target, subfieldCodes, compileRules(rules),
+      BooleanUtils.isTrue(mapping.getBoolean("applyRulesOnConcatenatedData")),
+      groupDelimiters, delimitedCodes, delimiterGroups, separator,
+      splitter == null ? null : new SubFieldSplit(splitter.getString("type"), splitter.getString(VALUE)));
+  }
+
+  private static Rule[] compileRules(JsonArray rules) {
+    if (rules == null) {
+      return null;
+    }
+    Rule[] compiled = new Rule[rules.size()];
+    for (int i = 0; i < rules.size(); i++) {
+      JsonObject rule = rules.getJsonObject(i);
+      JsonArray conditions = rule.getJsonArray("conditions");
+      if (conditions == null) {
+        throw new IllegalArgumentException("no conditions declared in rule " + rule.encode());
+      }
+      Condition[] compiledConditions = new Condition[conditions.size()];
+      for (int m = 0; m < conditions.size(); m++) {
+        compiledConditions[m] = compileCondition(conditions.getJsonObject(m));
+      }
+      compiled[i] = new Rule(compiledConditions, rule.getString(VALUE));
+    }
+    return compiled;
+  }
+
+  private static Condition compileCondition(JsonObject condition) {
+    if (condition.getString("type") == null) {
+      throw new IllegalArgumentException("no type declared in condition " + condition.encode());
+    }
+    String[] names = ProcessorHelper.getFunctionsFromCondition(condition);
+    NormalizationFunctions.Function[] functions = new NormalizationFunctions.Function[names.length];
+    boolean custom = false;
+    boolean regex = false;
+    for (int i = 0; i < names.length; i++) {
+      functions[i] = NormalizationFunctions.Function.of(names[i].trim());
+      custom |= functions[i] == NormalizationFunctions.Function.CUSTOM;
+      regex |= functions[i] != null && functions[i].isRegex();
+    }
+    String parameter = condition.getString("parameter");
+    Pattern pattern = null;
+    if (regex) {
+      if (parameter == null) {
+        throw new IllegalArgumentException("no parameter declared in regex condition " + condition.encode());
+      }
+      try {
+        pattern = Pattern.compile(parameter);
+      } catch (PatternSyntaxException e) {
+        throw new IllegalArgumentException("invalid regex in condition " + condition.encode()
+          + " - " + e.getDescription(), e);
+      }
+    }
+    return new Condition(functions, custom, condition.getBoolean("LDR") != null, condition.getString(VALUE),
+      new NormalizationFunctions.Parameter(parameter, pattern, condition.getString("replacement")),
+      BooleanUtils.isTrue(condition.getBoolean("pure")));
+  }
+
+  private static String singleCharCodes(JsonArray subfields) {
+    StringBuilder codes = new StringBuilder();
+    for (int i = 0; i < subfields.size(); i++) {
+      Object code = subfields.getValue(i);
+      if (code instanceof String && ((String) code).length() == 1) {
+        codes.append((String) code);
+      }
+    }
+    return codes.toString();
+  }
+}
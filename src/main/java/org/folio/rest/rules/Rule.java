@@ -0,0 +1,27 @@
+package org.folio.rest.rules;
+
+/**
+ * A rule is an AND between its conditions. If all conditions are met and a constant
+ * value is declared, the value is used as the mapped data.
+ */
+public class Rule {
+
+  private final Condition[] conditions;
+  private final String value;
+
+  Rule(Condition[] conditions, String value) {
+    this.conditions = conditions;
+    this.value = value;
+  }
+
+  public Condition[] getConditions() {
+    return conditions;
+  }
+
+  /**
+   * @return the constant value of the rule, null if none was declared
+   */
+  public String getValue() {
+    return value;
+  }
+}
@@ -0,0 +1,32 @@
+package org.folio.rest.rules;
+
+/**
+ * Compiled "subFieldSplit" declaration - see the README section on splitting a single subfield
+ * into multiple subfields.
+ */
+public class SubFieldSplit {
+
+  private static final String CUSTOM = "custom";
+
+  private final String type;
+  private final String value;
+  private final boolean custom;
+
+  SubFieldSplit(String type, String value) {
+    this.type = type;
+    this.value = value;
+    this.custom = CUSTOM.equals(type);
+  }
+
+  public String getType() {
+    return type;
+  }
+
+  public String getValue() {
+    return value;
+  }
+
+  public boolean isCustom() {
+    return custom;
+  }
+}
@@ -0,0 +1,130 @@
+package org.folio.rest.rules;
+
+import org.folio.rest.jaxrs.model.Instance;
+import org.folio.rest.service.PathAccessor;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Mapping of a control field, or of a set of subfields in a data field, to a single target
+ * field in the instance. All configuration is parsed once when the rules are uploaded.
+ */
+public class TargetMapping {
+
+  private final JsonObject source;
+  private final String target;
+  private final String[] path;
+  private final PathAccessor accessor;
+  private final String subfieldCodes;
+  private final Rule[] rules;
+  private final CharSelectTable charSelectTable;
+  private final boolean applyRulesOnConcatenatedData;
+  private final String[] delimiters;
+  private final char[] delimitedCodes;
+  private final int[] delimiterGroups;
+  private final String separator;
+  private final SubFieldSplit subFieldSplit;
+
+  TargetMapping(JsonObject source, String target, String subfieldCodes, Rule[] rules,
+                boolean applyRulesOnConcatenatedData, String[] delimiters, char[] delimitedCodes,
+                int[] delimiterGroups, String separator, SubFieldSplit subFieldSplit) {
+    this.source = source;
+    this.target = target;
+    this.path = target == null ? null : target.split("\\.");
+    this.accessor = target == null ? null : PathAccessor.of(Instance.class, target);
+    this.subfieldCodes = subfieldCodes;
+    this.rules = rules;
+    this.charSelectTable = CharSelectTable.compile(rules);
+    this.applyRulesOnConcatenatedData = applyRulesOnConcatenatedData;
+    this.delimiters = delimiters;
+    this.delimitedCodes = delimitedCodes;
+    this.delimiterGroups = delimiterGroups;
+    this.separator = separator;
+    this.subFieldSplit = subFieldSplit;
+  }
+
+  /**
+   * @return the rules.json entry this mapping was compiled from, used for logging only
+   */
+  public JsonObject getSource() {
+    return source;
+  }
+
+  public String getTarget() {
+    return target;
+  }
+
+  /**
+   * @return the target split on '.' - the path to the field to populate within the instance
+   */
+  public String[] getPath() {
+    return path;
+  }
+
+  /**
+   * @return the resolved accessors for the target within the instance, null if no target was declared
+   */
+  public PathAccessor getAccessor() {
+    return accessor;
+  }
+
+  /**
+   * @return true if a "subfield" array was declared
+   */
+  public boolean hasSubfields() {
+    return subfieldCodes != null;
+  }
+
+  public boolean hasSubfield(char code) {
+    return subfieldCodes != null && subfieldCodes.indexOf(code) != -1;
+  }
+
+  /**
+   * @return the rules to apply to the data, null if none were declared
+   */
+  public Rule[] getRules() {
+    return rules;
+  }
+
+  /**
+   * @return the rules compiled into a decision table, null if they are not all constant char_select rules
+   */
+  public CharSelectTable getCharSelectTable() {
+    return charSelectTable;
+  }
+
+  public boolean isApplyRulesOnConcatenatedData() {
+    return applyRulesOnConcatenatedData;
+  }
+
+  /**
+   * @return the delimiter of each subfield set, in declaration order, null if no
+   * "subFieldDelimiter" was declared
+   */
+  public String[] getDelimiters() {
+    return delimiters;
+  }
+
+  /**
+   * @return the index within {@link #getDelimiters()} of the set the subfield belongs to, -1 if none
+   */
+  public int getDelimiterGroup(char code) {
+    for (int i = 0; i < delimitedCodes.length; i++) {
+      if (delimitedCodes[i] == code) {
+        return delimiterGroups[i];
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @return the delimiter declared with an empty subfields array, null if there is none
+   */
+  public String getSeparator() {
+    return separator;
+  }
+
+  public SubFieldSplit getSubFieldSplit() {
+    return subFieldSplit;
+  }
+}
@@ -5,8 +5,6 @@ import org.apache.log4j.Logger;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.lang.reflect.Field;
-import java.lang.reflect.ParameterizedType;
 
 
 public class LoaderHelper {
@@ -14,33 +12,12 @@ public class LoaderHelper {
   private static final Logger LOGGER = LogManager.getLogger(LoaderHelper.class);
   private LoaderHelper() {}
 
-  public static boolean isMappingValid(Object object, String[] path)
-    throws InstantiationException, IllegalAccessException {
-    Class<?> type = null;
-    for (int i = 0; i < path.length; i++) {
-      Field field;
-      try {
-        field = object.getClass().getDeclaredField(path[i]);
-      } catch (NoSuchFieldException e) {
-        return false;
-      }
-      type = field.getType();
-
-      // this is a configuration error, the type is an object, but no fields are indicated
-      // to be populated on that object. if you map a marc field to an object, it must be
-      // something like - marc.identifier -> identifierObject.idField
-      if (type.isAssignableFrom(java.util.List.class)
-        || type.isAssignableFrom(java.util.Set.class)) {
-        ParameterizedType listType = (ParameterizedType) field.getGenericType();
-        Class<?> listTypeClass = (Class<?>) listType.getActualTypeArguments()[0];
-        object = listTypeClass.newInstance();
-        if (isPrimitiveOrPrimitiveWrapperOrString(listTypeClass) && i == path.length - 1) {
-          // we are here if the last entry in the path is an array / set of primitives, that is ok
-          return true;
-        }
-      }
-    }
-    return type != null && isPrimitiveOrPrimitiveWrapperOrString(type);
+  /**
+   * @return true if the path within the object ends in a primitive, a primitive wrapper, a String or a
+   * collection of those - see {@link PathAccessor#isValid()}
+   */
+  public static boolean isMappingValid(Object object, String[] path) {
+    return PathAccessor.of(object.getClass(), path).isValid();
   }
 
   public static boolean isPrimitiveOrPrimitiveWrapperOrString(Class<?> type) {
@@ -0,0 +1,225 @@
+package org.folio.rest.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+/**
+ * A binary marc file on local disk, memory mapped and indexed by record. The file is scanned once
+ * when opened - following the record length in each leader and falling back to the next record
+ * terminator (0x1D) when a leader is broken - so that any record can then be read by its position
+ * without a shared reader. Closing the file unmaps it, the views of its records must not be read after that.
+ */
+public class MappedMarcFile implements Closeable {
+
+  private static final Logger LOGGER = LogManager.getLogger(MappedMarcFile.class);
+  private static final byte RECORD_TERMINATOR = 0x1D;
+  private static final int RECORD_LENGTH_DIGITS = 5;
+  // the record length in the leader has 5 digits
+  private static final int MAX_RECORD_LENGTH = 99999;
+  // files larger than 2GB are mapped in segments, each segment overlaps the next by the maximum record
+  // length so that a record starting in a segment can be read from it
+  private static final long SEGMENT_SIZE = 1L << 30;
+
+  private final Path path;
+  private final boolean deleteOnClose;
+  private final FileChannel channel;
+  private final long length;
+  private final MappedByteBuffer[] segments;
+  private long[] offsets = new long[1024];
+  private int size;
+
+  /**
+   * @param path - the marc file
+   * @param deleteOnClose - delete the file once closed, for spooled files
+   */
+  public MappedMarcFile(Path path, boolean deleteOnClose) throws IOException {
+    this.path = path;
+    this.deleteOnClose = deleteOnClose;
+    this.channel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      this.length = channel.size();
+      this.segments = new MappedByteBuffer[(int) ((length + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+      for (int i = 0; i < segments.length; i++) {
+        long start = i * SEGMENT_SIZE;
+        segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+          Math.min(length - start, SEGMENT_SIZE + MAX_RECORD_LENGTH));
+      }
+      buildIndex();
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * copy the stream to a temporary file and map it, the file is deleted when closed
+   */
+  public static MappedMarcFile spool(InputStream in) throws IOException {
+    Path spooled = Files.createTempFile("marc-", ".mrc");
+    try {
+      Files.copy(in, spooled, StandardCopyOption.REPLACE_EXISTING);
+      return new MappedMarcFile(spooled, true);
+    } catch (IOException | RuntimeException e) {
+      Files.deleteIfExists(spooled);
+      throw e;
+    }
+  }
+
+  /**
+   * @return the amount of records in the file
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return the position of record n within the file
+   */
+  public long getOffset(int n) {
+    return offsets[n];
+  }
+
+  /**
+   * @return the length of record n, including its terminator
+   */
+  public int getLength(int n) {
+    return (int) ((n + 1 < size ? offsets[n + 1] : length) - offsets[n]);
+  }
+
+  /**
+   * @return a read only view of the bytes of record n, backed by the mapped file when possible
+   */
+  public ByteBuffer getBytes(int n) throws IOException {
+    long offset = offsets[n];
+    int recordLength = getLength(n);
+    MappedByteBuffer segment = segments[(int) (offset / SEGMENT_SIZE)];
+    int position = (int) (offset % SEGMENT_SIZE);
+    if (position + recordLength <= segment.limit()) {
+      ByteBuffer view = segment.duplicate();
+      view.position(position).limit(position + recordLength);
+      return view.slice().asReadOnlyBuffer();
+    }
+    // only a broken record, longer than a leader allows, does not fit in its segment
+    ByteBuffer copy = ByteBuffer.allocate(recordLength);
+    while (copy.hasRemaining()) {
+      if (channel.read(copy, offset + copy.position()) < 0) {
+        break;
+      }
+    }
+    copy.flip();
+    return copy;
+  }
+
+  /**
+   * unmap the file and close it, a closed file is not read any further
+   */
+  @Override
+  public void close() throws IOException {
+    for (int i = 0; i < segments.length; i++) {
+      if (segments[i] != null) {
+        unmap(segments[i]);
+        segments[i] = null;
+      }
+    }
+    channel.close();
+    if (deleteOnClose) {
+      try {
+        Files.deleteIfExists(path);
+      } catch (IOException e) {
+        // can happen on platforms that do not delete mapped files, the file is in the temp directory
+        LOGGER.warn("unable to delete " + path + ": " + e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * release the mapping now rather than when the buffer is garbage collected - a mapped spooled file holds
+   * its disk space (and on some platforms can not be deleted) until then. There is no public api for it,
+   * the cleaner is invoked the way the jdk version in use allows it.
+   */
+  private static void unmap(MappedByteBuffer segment) {
+    try {
+      Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      Method invokeCleaner;
+      try {
+        invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+      } catch (NoSuchMethodException e) {
+        // java 8
+        Method cleanerMethod = segment.getClass().getMethod("cleaner");
+        cleanerMethod.setAccessible(true);
+        Object cleaner = cleanerMethod.invoke(segment);
+        if (cleaner != null) {
+          cleaner.getClass().getMethod("clean").invoke(cleaner);
+        }
+        return;
+      }
+      Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+      theUnsafe.setAccessible(true);
+      invokeCleaner.invoke(theUnsafe.get(null), segment);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      // the mapping is released once the buffer is garbage collected
+      LOGGER.warn("unable to unmap the marc file: " + e.getMessage());
+    }
+  }
+
+  private void buildIndex() {
+    long offset = 0;
+    while (offset < length) {
+      if (size == offsets.length) {
+        offsets = Arrays.copyOf(offsets, size * 2);
+      }
+      offsets[size++] = offset;
+      int recordLength = leaderRecordLength(offset);
+      if (recordLength > 0 && byteAt(offset + recordLength - 1) == RECORD_TERMINATOR) {
+        offset += recordLength;
+      } else {
+        offset = nextRecordStart(offset);
+      }
+    }
+  }
+
+  /**
+   * @return the record length declared in the leader at offset, -1 if it is not a number
+   */
+  private int leaderRecordLength(long offset) {
+    if (offset + RECORD_LENGTH_DIGITS > length) {
+      return -1;
+    }
+    int recordLength = 0;
+    for (int i = 0; i < RECORD_LENGTH_DIGITS; i++) {
+      byte b = byteAt(offset + i);
+      if (b < '0' || b > '9') {
+        return -1;
+      }
+      recordLength = recordLength * 10 + (b - '0');
+    }
+    return offset + recordLength <= length ? recordLength : -1;
+  }
+
+  private long nextRecordStart(long offset) {
+    for (long i = offset; i < length; i++) {
+      if (byteAt(i) == RECORD_TERMINATOR) {
+        return i + 1;
+      }
+    }
+    return length;
+  }
+
+  private byte byteAt(long offset) {
+    return segments[(int) (offset / SEGMENT_SIZE)].get((int) (offset % SEGMENT_SIZE));
+  }
+}
@@ -0,0 +1,289 @@
+package org.folio.rest.service;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+import static org.folio.rest.service.LoaderHelper.isPrimitiveOrPrimitiveWrapperOrString;
+
+/**
+ * Accessors for a target path (for example "identifiers.value") within a class. The getters, setters
+ * and collection element constructors along the path are resolved once per (class, path) into
+ * method handles, so populating an object does no reflection lookups and no string building.
+ */
+public class PathAccessor {
+
+  private static final Logger LOGGER = LogManager.getLogger(PathAccessor.class);
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.publicLookup();
+  private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+  private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+  private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+
+  private static final ConcurrentMap<Class<?>, ConcurrentMap<String, PathAccessor>> CACHE =
+    new ConcurrentHashMap<>();
+
+  private enum Kind { COLLECTION, OBJECT, VALUE, FAILURE }
+
+  private static class Step {
+    private Kind kind;
+    private MethodHandle getter;
+    private MethodHandle setter;
+    private MethodHandle constructor;
+    private Class<?> type;
+    private boolean primitiveElements;
+    private String failure;
+  }
+
+  private final String target;
+  private final boolean valid;
+  private final Class<?> valueType;
+  private final Step[] steps;
+
+  private PathAccessor(Class<?> root, String target, String[] path) {
+    this.target = target;
+    this.valid = resolveValid(root, path);
+    this.valueType = resolveValueType(root, path);
+    this.steps = resolveSteps(root, path);
+  }
+
+  /**
+   * @return the cached accessor for the path within the root class
+   */
+  public static PathAccessor of(Class<?> root, String[] path) {
+    return of(root, String.join(".", path));
+  }
+
+  /**
+   * @param target - the path as declared in the rules file, segments separated by '.'
+   * @return the cached accessor for the target within the root class
+   */
+  public static PathAccessor of(Class<?> root, String target) {
+    return CACHE.computeIfAbsent(root, k -> new ConcurrentHashMap<>())
+      .computeIfAbsent(target, k -> new PathAccessor(root, target, target.split("\\.")));
+  }
+
+  /**
+   * @return true if the path ends in a primitive, a primitive wrapper, a String or a collection of those
+   */
+  public boolean isValid() {
+    return valid;
+  }
+
+  /**
+   * Convert the value to the type of the field at the end of the path.
+   * @throws NumberFormatException if the field is numeric and the value is not
+   */
+  public Object toValue(String value) {
+    if (valueType.isAssignableFrom(String.class)) {
+      return value;
+    } else if (valueType.isAssignableFrom(Boolean.class)) {
+      return Boolean.valueOf(value);
+    } else if (valueType.isAssignableFrom(Double.class)) {
+      return Double.valueOf(value);
+    }
+    return Integer.valueOf(value);
+  }
+
+  /**
+   * Populate the path within object with val.
+   * @param object - the root object to start walking the path from
+   * @param newComp - should a new object be created in a collection of non primitives, if not, use the object
+   * passed into the complexPreviouslyCreated parameter and continue populating it.
+   * @param val - the value to set, as returned by {@link #toValue(String)}
+   * @param complexPreviouslyCreated - pass in a non primitive pojo that is already partially
+   * populated from previous subfield values
+   * @return true if the value was set
+   */
+  @SuppressWarnings("unchecked")
+  public boolean set(Object object, boolean newComp, Object val, Object[] complexPreviouslyCreated) {
+    try {
+      for (Step step : steps) {
+        switch (step.kind) {
+          case COLLECTION:
+            Collection<Object> coll = (Collection<Object>) (Object) step.getter.invokeExact(object);
+            if (step.primitiveElements) {
+              coll.add(val);
+            } else if (newComp) {
+              Object o = (Object) step.constructor.invokeExact();
+              coll.add(o);
+              step.setter.invokeExact(object, (Object) coll);
+              object = o;
+              complexPreviouslyCreated[0] = object;
+            } else if (complexPreviouslyCreated[0] != null
+              && complexPreviouslyCreated[0].getClass().isAssignableFrom(step.type)) {
+              object = complexPreviouslyCreated[0];
+            } else {
+              LOGGER.error("no " + step.type.getName() + " to populate for " + target);
+              return false;
+            }
+            break;
+          case OBJECT:
+            object = (Object) step.getter.invokeExact(object);
+            break;
+          case VALUE:
+            if (val.getClass() != step.type) {
+              LOGGER.error(target + " expects a value of type " + step.type.getName()
+                + " but received " + val.getClass().getName());
+              return false;
+            }
+            step.setter.invokeExact(object, val);
+            break;
+          default:
+            LOGGER.error(step.failure);
+            return false;
+        }
+      }
+    } catch (Error e) {
+      throw e;
+    } catch (Throwable e) {
+      LOGGER.error(e.getMessage(), e);
+      return false;
+    }
+    return true;
+  }
+
+  private static boolean resolveValid(Class<?> type, String[] path) {
+    Class<?> current = type;
+    Class<?> fieldType = null;
+    for (int i = 0; i < path.length; i++) {
+      Field field;
+      try {
+        field = current.getDeclaredField(path[i]);
+      } catch (NoSuchFieldException e) {
+        return false;
+      }
+      fieldType = field.getType();
+
+      // this is a configuration error, the type is an object, but no fields are indicated
+      // to be populated on that object. if you map a marc field to an object, it must be
+      // something like - marc.identifier -> identifierObject.idField
+      if (isCollection(fieldType)) {
+        Class<?> elementType = elementType(field);
+        if (!hasNoArgConstructor(elementType)) {
+          return false;
+        }
+        current = elementType;
+        if (isPrimitiveOrPrimitiveWrapperOrString(elementType) && i == path.length - 1) {
+          // we are here if the last entry in the path is an array / set of primitives, that is ok
+          return true;
+        }
+      }
+    }
+    return fieldType != null && isPrimitiveOrPrimitiveWrapperOrString(fieldType);
+  }
+
+  private static Class<?> resolveValueType(Class<?> type, String[] path) {
+    Class<?> current = type;
+    Class<?> valueType = Integer.TYPE;
+    for (String pathSegment : path) {
+      try {
+        Field field = current.getDeclaredField(pathSegment);
+        valueType = field.getType();
+        if (isCollection(valueType)) {
+          valueType = elementType(field);
+          current = valueType;
+        }
+      } catch (NoSuchFieldException e) {
+        // keep the type of the previous segment, the mapping is reported as invalid by isValid()
+      }
+    }
+    return wrap(valueType);
+  }
+
+  private static Step[] resolveSteps(Class<?> type, String[] path) {
+    List<Step> steps = new ArrayList<>();
+    Class<?> current = type;
+    for (String pathSegment : path) {
+      Step step = new Step();
+      steps.add(step);
+      try {
+        Field field = current.getDeclaredField(pathSegment);
+        Class<?> fieldType = field.getType();
+        if (isCollection(fieldType)) {
+          step.kind = Kind.COLLECTION;
+          step.getter = getter(current, pathSegment);
+          step.type = elementType(field);
+          step.primitiveElements = isPrimitiveOrPrimitiveWrapperOrString(step.type);
+          if (!step.primitiveElements) {
+            step.setter = setter(current, pathSegment, fieldType);
+            step.constructor = LOOKUP.findConstructor(step.type, MethodType.methodType(void.class))
+              .asType(CONSTRUCTOR_TYPE);
+            current = step.type;
+          }
+        } else if (!isPrimitiveOrPrimitiveWrapperOrString(fieldType)) {
+          //currently not needed for instances, may be needed in the future
+          //non primitive member in instance object but represented as a list or set of non
+          //primitive objects
+          step.kind = Kind.OBJECT;
+          step.getter = getter(current, pathSegment);
+          current = fieldType;
+        } else { // primitive
+          step.kind = Kind.VALUE;
+          //values arrive boxed, a primitive setter unboxes them
+          step.type = wrap(fieldType);
+          step.setter = setter(current, pathSegment, fieldType);
+        }
+      } catch (ReflectiveOperationException | RuntimeException e) {
+        step.kind = Kind.FAILURE;
+        step.failure = "unable to resolve " + pathSegment + " in " + current.getName() + ": " + e.getMessage();
+        break;
+      }
+    }
+    return steps.toArray(new Step[steps.size()]);
+  }
+
+  private static MethodHandle getter(Class<?> type, String pathSegment)
+    throws NoSuchMethodException, IllegalAccessException {
+    return LOOKUP.unreflect(type.getMethod(columnNametoCamelCase("get", pathSegment))).asType(GETTER_TYPE);
+  }
+
+  private static MethodHandle setter(Class<?> type, String pathSegment, Class<?> parameterType)
+    throws NoSuchMethodException, IllegalAccessException {
+    return LOOKUP.unreflect(type.getMethod(columnNametoCamelCase("set", pathSegment), parameterType))
+      .asType(SETTER_TYPE);
+  }
+
+  private static Class<?> wrap(Class<?> type) {
+    return MethodType.methodType(type).wrap().returnType();
+  }
+
+  private static boolean isCollection(Class<?> type) {
+    return type.isAssignableFrom(List.class) || type.isAssignableFrom(java.util.Set.class);
+  }
+
+  private static Class<?> elementType(Field field) {
+    ParameterizedType listType = (ParameterizedType) field.getGenericType();
+    return (Class<?>) listType.getActualTypeArguments()[0];
+  }
+
+  private static boolean hasNoArgConstructor(Class<?> type) {
+    try {
+      type.getConstructor();
+      return true;
+    } catch (NoSuchMethodException e) {
+      return false;
+    }
+  }
+
+  private static String columnNametoCamelCase(String prefix, String str) {
+    StringBuilder sb = new StringBuilder(str);
+    sb.replace(0, 1, String.valueOf(Character.toUpperCase(sb.charAt(0))));
+    for (int i = 0; i < sb.length(); i++) {
+      if (sb.charAt(i) == '_') {
+        sb.deleteCharAt(i);
+        sb.replace(i, i + 1, String.valueOf(Character.toUpperCase(sb.charAt(i))));
+      }
+    }
+    return prefix + sb.toString();
+  }
+}
@@ -0,0 +1,57 @@
+package org.folio.rest.struct;
+
+/**
+ * Sizes of the batches uploaded by a job, reported in the job summary so the batching parameters
+ * can be tuned.
+ */
+public class BatchStatistics {
+
+  public enum Trigger { COUNT, BYTES, TIME, END }
+
+  private int batches;
+  private long records;
+  private long bytes;
+  private int minRecords = Integer.MAX_VALUE;
+  private int maxRecords;
+  private long minBytes = Long.MAX_VALUE;
+  private long maxBytes;
+  private final int[] triggers = new int[Trigger.values().length];
+
+  public void add(int batchRecords, long batchBytes, Trigger trigger) {
+    batches++;
+    records += batchRecords;
+    bytes += batchBytes;
+    minRecords = Math.min(minRecords, batchRecords);
+    maxRecords = Math.max(maxRecords, batchRecords);
+    minBytes = Math.min(minBytes, batchBytes);
+    maxBytes = Math.max(maxBytes, batchBytes);
+    triggers[trigger.ordinal()]++;
+  }
+
+  public int getBatches() {
+    return batches;
+  }
+
+  /**
+   * @return for example "batches: 3 (records min/avg/max 120/4040/10000, bytes min/avg/max ..., flushed by
+   * count: 2, bytes: 0, time: 0, end: 1)"
+   */
+  @Override
+  public String toString() {
+    if (batches == 0) {
+      return "batches: 0";
+    }
+    StringBuilder sb = new StringBuilder()
+      .append("batches: ").append(batches)
+      .append(" (records min/avg/max ").append(minRecords).append("/").append(records / batches)
+      .append("/").append(maxRecords)
+      .append(", bytes min/avg/max ").append(minBytes).append("/").append(bytes / batches)
+      .append("/").append(maxBytes)
+      .append(", flushed by");
+    for (Trigger trigger : Trigger.values()) {
+      sb.append(trigger == Trigger.COUNT ? " " : ", ")
+        .append(trigger.name().toLowerCase()).append(": ").append(triggers[trigger.ordinal()]);
+    }
+    return sb.append(")").toString();
+  }
+}
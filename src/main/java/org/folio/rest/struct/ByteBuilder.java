@@ -0,0 +1,115 @@
+package org.folio.rest.struct;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A growable byte array, the byte counterpart of a StringBuilder. Serializers write UTF-8 into it
+ * directly so that the content of a batch is never held as chars and encoded again when sent.
+ * Not thread safe.
+ */
+public class ByteBuilder extends OutputStream {
+
+  private byte[] bytes;
+  private int length;
+
+  public ByteBuilder() {
+    this(8192);
+  }
+
+  public ByteBuilder(int capacity) {
+    bytes = new byte[capacity];
+  }
+
+  @Override
+  public void write(int b) {
+    ensureCapacity(length + 1);
+    bytes[length++] = (byte) b;
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) {
+    ensureCapacity(length + len);
+    System.arraycopy(b, off, bytes, length, len);
+    length += len;
+  }
+
+  /**
+   * append the UTF-8 bytes of the string, encoded in place - an unpaired surrogate is written as '?' like
+   * {@link String#getBytes(java.nio.charset.Charset)} does
+   */
+  public ByteBuilder append(String s) {
+    int count = s.length();
+    // at most 3 bytes per char, a surrogate pair takes 4 bytes for 2 chars
+    ensureCapacity(length + count * 3);
+    byte[] b = bytes;
+    int n = length;
+    for (int i = 0; i < count; i++) {
+      char c = s.charAt(i);
+      if (c < 0x80) {
+        b[n++] = (byte) c;
+      } else if (c < 0x800) {
+        b[n++] = (byte) (0xC0 | c >> 6);
+        b[n++] = (byte) (0x80 | c & 0x3F);
+      } else if (Character.isHighSurrogate(c) && i + 1 < count && Character.isLowSurrogate(s.charAt(i + 1))) {
+        int codePoint = Character.toCodePoint(c, s.charAt(++i));
+        b[n++] = (byte) (0xF0 | codePoint >> 18);
+        b[n++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+        b[n++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+        b[n++] = (byte) (0x80 | codePoint & 0x3F);
+      } else if (Character.isSurrogate(c)) {
+        b[n++] = '?';
+      } else {
+        b[n++] = (byte) (0xE0 | c >> 12);
+        b[n++] = (byte) (0x80 | c >> 6 & 0x3F);
+        b[n++] = (byte) (0x80 | c & 0x3F);
+      }
+    }
+    length = n;
+    return this;
+  }
+
+  /**
+   * append a range of the content of another builder
+   */
+  public ByteBuilder append(ByteBuilder source, int from, int to) {
+    write(source.bytes, from, to - from);
+    return this;
+  }
+
+  public int length() {
+    return length;
+  }
+
+  /**
+   * truncate the content, the allocated array is kept
+   */
+  public void setLength(int length) {
+    if (length > this.length) {
+      throw new IllegalArgumentException("length " + length + " > " + this.length);
+    }
+    this.length = length;
+  }
+
+  /**
+   * @return the backing array, valid up to {@link #length()} until the next write
+   */
+  public byte[] getBytes() {
+    return bytes;
+  }
+
+  /**
+   * @return the content decoded as UTF-8
+   */
+  @Override
+  public String toString() {
+    return new String(bytes, 0, length, StandardCharsets.UTF_8);
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity > bytes.length) {
+      bytes = Arrays.copyOf(bytes, Math.max(capacity, bytes.length * 2));
+    }
+  }
+}
@@ -0,0 +1,97 @@
+package org.folio.rest.struct;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Counts non negative values in power of two buckets: bucket b holds the values from 2^(b-1) to 2^b - 1,
+ * bucket 0 the zeros. Adding a value is lock free, many threads may add to the same histogram. Percentiles
+ * are the upper bound of the bucket they fall into, so they are at most twice the exact value.
+ */
+public class Histogram {
+
+  private static final int BUCKETS = 64;
+
+  private final LongAdder[] buckets = new LongAdder[BUCKETS];
+  private final LongAdder count = new LongAdder();
+  private final LongAdder sum = new LongAdder();
+  private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+  public Histogram() {
+    for (int b = 0; b < BUCKETS; b++) {
+      buckets[b] = new LongAdder();
+    }
+  }
+
+  public void add(long value) {
+    long v = Math.max(0, value);
+    buckets[Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(v))].increment();
+    count.increment();
+    sum.add(v);
+    max.accumulate(v);
+  }
+
+  public long getCount() {
+    return count.sum();
+  }
+
+  public long getSum() {
+    return sum.sum();
+  }
+
+  public long getMax() {
+    return max.get();
+  }
+
+  /**
+   * @param fraction - for example 0.99
+   * @return the upper bound of the bucket holding that fraction of the values, 0 if empty
+   */
+  public long getPercentile(double fraction) {
+    long total = count.sum();
+    if (total == 0) {
+      return 0;
+    }
+    long rank = (long) Math.ceil(fraction * total);
+    long seen = 0;
+    for (int b = 0; b < BUCKETS; b++) {
+      seen += buckets[b].sum();
+      if (seen >= rank) {
+        return Math.min(upperBound(b), getMax());
+      }
+    }
+    return getMax();
+  }
+
+  private static long upperBound(int bucket) {
+    return bucket == BUCKETS - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+  }
+
+  /**
+   * @param divisor - the values are reported divided by this, for example 1000 to report nanoseconds as
+   *                microseconds
+   * @return count, sum, mean, max, percentiles and the non empty buckets by their upper bound
+   */
+  public JsonObject toJson(long divisor) {
+    long total = count.sum();
+    JsonArray counts = new JsonArray();
+    for (int b = 0; b < BUCKETS; b++) {
+      long n = buckets[b].sum();
+      if (n > 0) {
+        counts.add(new JsonObject().put("le", upperBound(b) / divisor).put("count", n));
+      }
+    }
+    return new JsonObject()
+      .put("count", total)
+      .put("sum", sum.sum() / divisor)
+      .put("mean", total == 0 ? 0 : sum.sum() / total / divisor)
+      .put("max", getMax() / divisor)
+      .put("p50", getPercentile(0.5) / divisor)
+      .put("p90", getPercentile(0.9) / divisor)
+      .put("p99", getPercentile(0.99) / divisor)
+      .put("buckets", counts);
+  }
+}
@@ -0,0 +1,99 @@
+package org.folio.rest.struct;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Time spent per stage of a load and the sizes of its batches. A load records into its own metrics, which
+ * also add to the metrics of the tenant, so both can be read while loads run.
+ * <p>
+ * The stages are timed per record, except the upload which is timed per batch. The control and data field
+ * stages include the javascript, object building and escaping of those fields; these three are only timed
+ * on every {@link #SAMPLE_INTERVAL}th record of a mapping thread, to keep the clock off the per subfield
+ * path of most records.
+ */
+public class LoadMetrics {
+
+  public enum Stage {
+    PARSE("parse"),
+    CONTROL_FIELDS("controlFieldRules"),
+    DATA_FIELDS("dataFieldRules"),
+    JAVASCRIPT("javascript"),
+    OBJECT_BUILDING("objectBuilding"),
+    SERIALIZATION("serialization"),
+    ESCAPING("escaping"),
+    UPLOAD("upload");
+
+    private final String key;
+
+    Stage(String key) {
+      this.key = key;
+    }
+
+    /**
+     * @return whether the stage is only timed on sampled records
+     */
+    public boolean isSampled() {
+      return this == JAVASCRIPT || this == OBJECT_BUILDING || this == ESCAPING;
+    }
+  }
+
+  public static final int SAMPLE_INTERVAL = 16;
+  private static final long NANOS_PER_MICRO = 1000;
+
+  private final LoadMetrics parent;
+  private final Histogram[] stages = new Histogram[Stage.values().length];
+  private final Histogram batchRecords = new Histogram();
+  private final Histogram batchBytes = new Histogram();
+
+  public LoadMetrics() {
+    this(null);
+  }
+
+  /**
+   * @param parent - also receives everything recorded here, null for none
+   */
+  public LoadMetrics(LoadMetrics parent) {
+    this.parent = parent;
+    for (Stage stage : Stage.values()) {
+      stages[stage.ordinal()] = new Histogram();
+    }
+  }
+
+  public void record(Stage stage, long nanos) {
+    stages[stage.ordinal()].add(nanos);
+    if (parent != null) {
+      parent.record(stage, nanos);
+    }
+  }
+
+  public void recordBatch(int records, long bytes) {
+    batchRecords.add(records);
+    batchBytes.add(bytes);
+    if (parent != null) {
+      parent.recordBatch(records, bytes);
+    }
+  }
+
+  public Histogram getStage(Stage stage) {
+    return stages[stage.ordinal()];
+  }
+
+  /**
+   * @return per stage the histogram of its times in microseconds, and the histograms of the batch sizes
+   */
+  public JsonObject toJson() {
+    JsonObject json = new JsonObject();
+    for (Stage stage : Stage.values()) {
+      JsonObject histogram = getStage(stage).toJson(NANOS_PER_MICRO);
+      if (stage.isSampled()) {
+        histogram.put("sampleInterval", SAMPLE_INTERVAL);
+      }
+      json.put(stage.key, histogram);
+    }
+    return new JsonObject()
+      .put("stageUnit", "microseconds")
+      .put("stages", json)
+      .put("batchRecords", batchRecords.toJson(1))
+      .put("batchBytes", batchBytes.toJson(1));
+  }
+}
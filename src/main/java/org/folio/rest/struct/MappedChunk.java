@@ -0,0 +1,95 @@
+package org.folio.rest.struct;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A consecutive run of records of an uploaded file, mapped and serialized to COPY lines by a mapping
+ * thread. The lines are written in UTF-8 straight into the chunk, the lines of each record are kept
+ * as ranges so that the records can be split across batches in file order.
+ */
+public class MappedChunk {
+
+  private final ByteBuilder instances = new ByteBuilder();
+  private final ByteBuilder sources = new ByteBuilder();
+  private final StringBuilder unprocessed = new StringBuilder();
+  private int[] instanceEnds;
+  private int[] sourceEnds;
+  private int size;
+
+  public MappedChunk(int capacity) {
+    instanceEnds = new int[capacity];
+    sourceEnds = new int[capacity];
+  }
+
+  /**
+   * @return where the instance line of the next record is written
+   */
+  public ByteBuilder getInstances() {
+    return instances;
+  }
+
+  /**
+   * @return where the source line of the next record is written
+   */
+  public ByteBuilder getSources() {
+    return sources;
+  }
+
+  /**
+   * Complete the record whose lines were written since the last record, the lines are expected to be
+   * terminated.
+   */
+  public void add() {
+    if (size == instanceEnds.length) {
+      instanceEnds = Arrays.copyOf(instanceEnds, size * 2 + 1);
+      sourceEnds = Arrays.copyOf(sourceEnds, size * 2 + 1);
+    }
+    instanceEnds[size] = instances.length();
+    sourceEnds[size] = sources.length();
+    size++;
+  }
+
+  /**
+   * Report a record that could not be mapped, whatever was written of its lines is dropped
+   * @param position - the 1 based position of the record within the uploaded file
+   */
+  public void addUnprocessed(long position) {
+    instances.setLength(size == 0 ? 0 : instanceEnds[size - 1]);
+    sources.setLength(size == 0 ? 0 : sourceEnds[size - 1]);
+    unprocessed.append("#").append(position).append(" ");
+  }
+
+  /**
+   * @return the number of successfully mapped records
+   */
+  public int size() {
+    return size;
+  }
+
+  public void appendInstance(int index, ByteBuilder target) {
+    target.append(instances, index == 0 ? 0 : instanceEnds[index - 1], instanceEnds[index]);
+  }
+
+  public void appendSource(int index, ByteBuilder target) {
+    target.append(sources, index == 0 ? 0 : sourceEnds[index - 1], sourceEnds[index]);
+  }
+
+  /**
+   * @return the positions of the records that could not be mapped, in the format of the X-Unprocessed header
+   */
+  public CharSequence getUnprocessed() {
+    return unprocessed;
+  }
+
+  /**
+   * @return the source line of the last successfully mapped record, null if source records are not stored
+   */
+  public String getLastSourceLine() {
+    if (size == 0 || sources.length() == 0) {
+      return null;
+    }
+    int start = size == 1 ? 0 : sourceEnds[size - 2];
+    return new String(sources.getBytes(), start, sourceEnds[size - 1] - start, StandardCharsets.UTF_8);
+  }
+}
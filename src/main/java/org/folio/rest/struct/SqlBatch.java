@@ -0,0 +1,34 @@
+package org.folio.rest.struct;
+
+/**
+ * The COPY statements of a batch of records in UTF-8 - one for the instance table and one for the source
+ * table. Batches are reused, a batch is filled while the previous one is being uploaded.
+ */
+public class SqlBatch {
+
+  private final ByteBuilder instances = new ByteBuilder();
+  private final ByteBuilder sources = new ByteBuilder();
+
+  public ByteBuilder getInstances() {
+    return instances;
+  }
+
+  public ByteBuilder getSources() {
+    return sources;
+  }
+
+  /**
+   * @return the size of both statements in bytes
+   */
+  public long size() {
+    return (long) instances.length() + sources.length();
+  }
+
+  /**
+   * empty the statements, keeping the allocated buffers for the next batch
+   */
+  public void clear() {
+    instances.setLength(0);
+    sources.setLength(0);
+  }
+}
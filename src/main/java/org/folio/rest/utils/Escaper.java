@@ -9,75 +9,123 @@ import org.apache.commons.lang3.StringUtils;
  */
 public class Escaper {
 
-  private static String removeEscapedChars(String text) {
-    int len = text.length();
-    StringBuilder token = new StringBuilder();
-    boolean slash = false;
-    boolean isEven = false;
-
-    for (int j = 0; j < len; j++) {
-      char t = text.charAt(j);
-      //this is our record delimiter '|', so for now as a quick fix,
-      //replace it with a blank
-      if( t == '|'){
-        t = ' ';
-      }
-      if (slash && isEven && t == '\\') {
-        // we've seen \\ and now a third \ in a row
-        isEven = false;
-        slash = true;
-        token.append(t);
-      } else if (slash && !isEven && t == '\\') {
-        // we have seen an odd number of \ and now we see another one, meaning \\ in the string
-        slash = true;
-        isEven = true;
-        token.append(t);
-      } else if (slash && !isEven && t != '\\') {
-        // we've hit a non \ after a single \, this needs to get encoded to be \\
-        token.append('\\').append(t);
-        isEven = false;
-        slash = false;
-      } else if (!slash && t == '\\') {
-        // we've hit a \
-        token.append(t);
-        isEven = false;
-        slash = true;
-      } else {
-        // even number of slashes following by a non slash, or just a non slash
-        token.append(t);
-        isEven = false;
-        slash = false;
-      }
-    }
-    return token.toString();
-  }
-
-
   /**
    * This function escapes data with two purposes in mind. The Marc data does not need to
    * conform to json or postgres escaped characters - this function takes Marc data and
-   * escapes it so that it is valid in both a json and a postgres context
+   * escapes it so that it is valid in both a json and a postgres context:
+   * a trailing \ is removed, '|' (our record delimiter) is replaced with a blank, a single \
+   * before another character is doubled and " is escaped as \". The data is scanned once and
+   * returned as is when nothing needs to be escaped.
    * @param data
    * @return
    */
   public static String escape(String data){
+    int i = 0;
+    int len = data.length();
+    while (i < len && !needsEscape(data.charAt(i))) {
+      i++;
+    }
+    if (i == len) {
+      return data;
+    }
+    StringBuilder sb = new StringBuilder(len + 16);
+    sb.append(data, 0, i);
+    escape(data, i, sb);
+    return sb.toString();
+  }
+
+  /**
+   * append the escaped data, see {@link #escape(String)}
+   */
+  public static void escape(String data, StringBuilder target) {
+    escape(data, 0, target);
+  }
+
+  private static void escape(String data, int from, StringBuilder target) {
+    //length of the current run of \ - an odd run followed by another character gets one more \
+    int slashes = 0;
+    for (int j = from; j < data.length(); j++) {
+      char t = data.charAt(j);
+      if (t == '\\') {
+        slashes++;
+        continue;
+      }
+      appendSlashes(target, slashes % 2 == 0 ? slashes : slashes + 1);
+      slashes = 0;
+      if (t == '|') {
+        //this is our record delimiter '|', so for now as a quick fix,
+        //replace it with a blank
+        target.append(' ');
+      } else if (t == '"') {
+        target.append('\\').append('"');
+      } else {
+        target.append(t);
+      }
+    }
     // remove \ char if it is the last char of the text
-    if (data.endsWith("\\")) {
-      data = data.substring(0, data.length() - 1);
+    appendSlashes(target, slashes - 1);
+  }
+
+  private static boolean needsEscape(char c) {
+    return c == '\\' || c == '|' || c == '"';
+  }
+
+  private static void appendSlashes(StringBuilder target, int count) {
+    for (int k = 0; k < count; k++) {
+      target.append('\\');
     }
-    data = removeEscapedChars(data).replaceAll("\\\"", "\\\\\"");
-    return data;
   }
 
   /**
    * Escapes characters within a given json string to be able to 'COPY' to postgres jsonb
    * @param s json string to be escaped
-   * @return escaped string
+   * @return escaped string, s itself if nothing needs to be escaped
    */
   public static String escapeSqlCopyFrom(String s) {
+    int i = 0;
+    int len = s.length();
+    while (i < len && !needsSqlCopyEscape(s.charAt(i))) {
+      i++;
+    }
+    if (i == len) {
+      return s;
+    }
+    StringBuilder sb = new StringBuilder(len + 16);
+    sb.append(s, 0, i);
+    escapeSqlCopyFrom(s, i, sb);
+    return sb.toString();
+  }
+
+  /**
+   * append the json string escaped for 'COPY', see {@link #escapeSqlCopyFrom(String)}
+   */
+  public static void escapeSqlCopyFrom(String s, StringBuilder target) {
+    escapeSqlCopyFrom(s, 0, target);
+  }
+
+  private static void escapeSqlCopyFrom(String s, int from, StringBuilder target) {
+    for (int j = from; j < s.length(); j++) {
+      char c = s.charAt(j);
+      if (needsSqlCopyEscape(c)) {
+        target.append('\\');
+      }
+      target.append(c);
+    }
+  }
+
+  private static boolean needsSqlCopyEscape(char c) {
+    return c == '\\' || c == '|' || c == '\n' || c == '\r';
+  }
+
+  /**
+   * Reverts {@link #escapeSqlCopyFrom(String)}
+   * @param s escaped string
+   * @return the json string
+   */
+  public static String unescapeSqlCopyFrom(String s) {
     return StringUtils.replaceEach(s,
-      new String[]{"\\", "|", "\n", "\r"},
-      new String[]{"\\\\", "\\|", "\\\n", "\\\r"}
+      new String[]{"\\\\", "\\|", "\\\n", "\\\r"},
+      new String[]{"\\", "|", "\n", "\r"}
     );
   }
 
@@ -0,0 +1,73 @@
+package org.folio.rest.id;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import org.folio.rest.marc.MarcRecord;
+import org.folio.rest.marc.MarcRecordReader;
+import org.junit.Test;
+
+public class ContentIdGeneratorTest {
+
+  private static final String FILE = "src/test/resources/msplit00000000.mrc";
+
+  private static byte[] firstRecord() throws IOException {
+    try (InputStream in = Files.newInputStream(Paths.get(FILE))) {
+      return new MarcRecordReader(in).next();
+    }
+  }
+
+  @Test
+  public void sameRecordSameId() throws IOException {
+    byte[] bytes = firstRecord();
+    String id = new ContentIdGenerator("diku").next(new MarcRecord().wrap(ByteBuffer.wrap(bytes)));
+    assertEquals(3, UUID.fromString(id).version());
+    assertEquals(id, new ContentIdGenerator("diku").next(new MarcRecord().wrap(ByteBuffer.wrap(bytes.clone()))));
+    assertNotEquals(id, new ContentIdGenerator("other").next(new MarcRecord().wrap(ByteBuffer.wrap(bytes))));
+  }
+
+  @Test
+  public void onlyControlNumbersCount() throws IOException {
+    byte[] bytes = firstRecord();
+    MarcRecord record = new MarcRecord().wrap(ByteBuffer.wrap(bytes));
+    String id = new ContentIdGenerator("diku").next(record);
+    //the leader is not part of the id
+    bytes[5] = bytes[5] == 'n' ? (byte) 'c' : (byte) 'n';
+    assertEquals(id, new ContentIdGenerator("diku").next(record.wrap(ByteBuffer.wrap(bytes))));
+  }
+
+  @Test
+  public void distinctRecordsDistinctIds() throws IOException {
+    ContentIdGenerator generator = new ContentIdGenerator("diku");
+    MarcRecord record = new MarcRecord();
+    Set<String> ids = new HashSet<>();
+    int n = 0;
+    try (InputStream in = Files.newInputStream(Paths.get(FILE))) {
+      MarcRecordReader reader = new MarcRecordReader(in);
+      byte[] bytes;
+      while ((bytes = reader.next()) != null) {
+        ids.add(generator.next(record.wrap(ByteBuffer.wrap(bytes))));
+        n++;
+      }
+    }
+    assertEquals(500, n);
+    assertEquals(n, ids.size());
+  }
+
+  @Test
+  public void strategies() {
+    assertEquals(IdStrategy.CONTENT, IdStrategy.of("content"));
+    assertEquals(IdStrategy.TIME_ORDERED, IdStrategy.of("time_ordered"));
+    assertEquals(IdStrategy.RANDOM, IdStrategy.of("random"));
+    assertNull(IdStrategy.of("TIME_ORDERED"));
+    assertArrayEquals(new int[] {1, 35}, IdStrategy.CONTENT.newGenerator("diku").getTags());
+  }
+}
@@ -0,0 +1,46 @@
+package org.folio.rest.id;
+
+import static org.junit.Assert.*;
+
+import java.util.UUID;
+
+import org.junit.Test;
+
+public class TimeOrderedIdGeneratorTest {
+
+  @Test
+  public void layout() {
+    long millis = 1_700_000_000_000L;
+    UUID id = UUID.fromString(new TimeOrderedIdGenerator().next(millis));
+    assertEquals(7, id.version());
+    assertEquals(2, id.variant());
+    assertEquals(millis, id.getMostSignificantBits() >>> 16);
+  }
+
+  @Test
+  public void canonicalForm() {
+    TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator();
+    for (int i = 0; i < 1000; i++) {
+      String id = generator.next(null);
+      assertEquals(id, UUID.fromString(id).toString());
+    }
+  }
+
+  @Test
+  public void increasingWithinAndAcrossMilliseconds() {
+    TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator();
+    String previous = generator.next(1000L);
+    //more ids than the counter holds in one millisecond, then the clock goes back
+    for (int i = 0; i < 10_000; i++) {
+      String id = generator.next(i < 9_000 ? 1000L : 999L);
+      assertTrue(previous + " < " + id, previous.compareTo(id) < 0);
+      previous = id;
+    }
+  }
+
+  @Test
+  public void strategies() {
+    assertEquals(4, UUID.fromString(IdStrategy.RANDOM.newGenerator("diku").next(null)).version());
+    assertEquals(7, UUID.fromString(IdStrategy.TIME_ORDERED.newGenerator("diku").next(null)).version());
+  }
+}
@@ -0,0 +1,44 @@
+package org.folio.rest.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class CharSequenceEntityTest {
+
+  private void assertUtf8(CharSequence content) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new CharSequenceEntity(content, "application/octet-stream").writeTo(out);
+    assertArrayEquals(content.toString().getBytes(StandardCharsets.UTF_8), out.toByteArray());
+  }
+
+  @Test
+  public void empty() throws IOException {
+    assertUtf8(new StringBuilder());
+  }
+
+  @Test
+  public void multiByte() throws IOException {
+    assertUtf8(new StringBuilder("a|é中😀\\.\n"));
+  }
+
+  @Test
+  public void unpairedSurrogates() throws IOException {
+    assertUtf8("x\ud800y\udc00");
+  }
+
+  @Test
+  public void surrogatePairAcrossWindows() throws IOException {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 40000; i++) {
+      sb.append(i % 3 == 0 ? "😀" : "é");
+      sb.append('a');
+    }
+    assertUtf8(sb);
+    assertUtf8(new StringBuffer(sb));
+  }
+}
@@ -0,0 +1,74 @@
+package org.folio.rest.impl;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+
+@RunWith(VertxUnitRunner.class)
+public class LoadExecutorTest {
+  private Vertx vertx;
+
+  @Before
+  public void setUp() {
+    vertx = Vertx.vertx();
+  }
+
+  @After
+  public void tearDown(TestContext ctx) {
+    vertx.close(ctx.asyncAssertSuccess());
+  }
+
+  @Test
+  public void fullExecutorRejects(TestContext ctx) {
+    LoadExecutor executor = LoadExecutor.TEST;
+    CountDownLatch release = new CountDownLatch(1);
+    Async done = ctx.async(executor.getCapacity());
+    for (int i = 0; i < executor.getCapacity(); i++) {
+      ctx.assertTrue(executor.execute(vertx, block -> {
+        try {
+          release.await();
+          block.complete();
+        } catch (InterruptedException e) {
+          block.fail(e);
+        }
+      }, result -> done.countDown()));
+    }
+    ctx.assertEquals(executor.getCapacity(), executor.getAdmitted());
+    ctx.assertFalse(executor.execute(vertx, block -> ctx.fail("must not run"), result -> ctx.fail("must not be called")));
+
+    release.countDown();
+    done.awaitSuccess();
+    ctx.assertEquals(0, executor.getAdmitted());
+  }
+
+  @Test
+  public void executorsAreIndependent(TestContext ctx) {
+    CountDownLatch release = new CountDownLatch(1);
+    Async done = ctx.async(LoadExecutor.STATIC.getCapacity() + 1);
+    for (int i = 0; i < LoadExecutor.STATIC.getCapacity(); i++) {
+      LoadExecutor.STATIC.execute(vertx, block -> {
+        try {
+          release.await();
+          block.complete();
+        } catch (InterruptedException e) {
+          block.fail(e);
+        }
+      }, result -> done.countDown());
+    }
+    // a busy static executor does not keep a marc load from running
+    ctx.assertTrue(LoadExecutor.MARC.execute(vertx, block -> block.complete(), result -> {
+      ctx.assertTrue(result.succeeded());
+      release.countDown();
+      done.countDown();
+    }));
+    done.awaitSuccess();
+  }
+}
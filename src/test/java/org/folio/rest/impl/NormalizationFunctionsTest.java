@@ -0,0 +1,74 @@
+package org.folio.rest.impl;
+
+import static org.junit.Assert.*;
+
+import java.util.regex.Pattern;
+
+import org.folio.rest.impl.NormalizationFunctions.Function;
+import org.folio.rest.impl.NormalizationFunctions.Parameter;
+import org.junit.Test;
+
+public class NormalizationFunctionsTest {
+
+  private static String run(String function, String val, String param) {
+    return NormalizationFunctions.runFunction(function, val, param);
+  }
+
+  @Test
+  public void charSelect() {
+    assertEquals("b", run("char_select", "abc", "1"));
+    assertEquals("bc", run("char_select", "abc", "1-2"));
+    assertEquals("abc", run("char_select", "abc", "7"));
+  }
+
+  @Test
+  public void caseFunctions() {
+    assertEquals("eng", run("lowercase", "ENG", null));
+    assertEquals("ENG", run("uppercase", "eng", null));
+  }
+
+  @Test
+  public void substrings() {
+    assertEquals("Smith", run("substring_before", "Smith, John", ","));
+    assertEquals(" John", run("substring_after", "Smith, John", ","));
+    assertEquals("Smith", run("substring_before", "Smith", ","));
+    assertEquals("", run("substring_after", "Smith", ","));
+  }
+
+  @Test
+  public void regexReplace() {
+    Parameter nonDigits = new Parameter("\\D", Pattern.compile("\\D"), null);
+    assertEquals("1999", NormalizationFunctions.runFunction(Function.REGEX_REPLACE, "c1999.", nonDigits));
+    assertEquals("1999", run("regex_replace", "[1999]", "\\D"));
+    assertEquals("John Smith", NormalizationFunctions.runFunction(Function.REGEX_REPLACE, "Smith, John",
+      new Parameter("(\\w+), (\\w+)", Pattern.compile("(\\w+), (\\w+)"), "$2 $1")));
+  }
+
+  @Test
+  public void regexExtract() {
+    assertEquals("1999", run("regex_extract", "c1999, 2001", "\\d{4}"));
+    assertEquals("0123", run("regex_extract", "(OCoLC)0123", "\\(OCoLC\\)(\\d+)"));
+    assertEquals("", run("regex_extract", "abc", "\\d+"));
+  }
+
+  @Test
+  public void regexMatch() {
+    assertEquals("(OCoLC)0123", run("regex_match", "(OCoLC)0123", "^\\(OCoLC\\)"));
+    assertNull(run("regex_match", "(DLC)0123", "^\\(OCoLC\\)"));
+  }
+
+  @Test
+  public void parameterIsParsedOnce() {
+    Parameter range = new Parameter("35-37", null, null);
+    assertEquals("eng", NormalizationFunctions.runFunction(Function.CHAR_SELECT,
+      "830606s1983    nyu           000 0 eng  ", range));
+    assertEquals("short", NormalizationFunctions.runFunction(Function.CHAR_SELECT, "short", range));
+    assertEquals("abc", NormalizationFunctions.runFunction(Function.CHAR_SELECT, "abc", new Parameter("x-1", null, null)));
+    assertEquals("", new Parameter("\\D", null, null).getReplacement());
+  }
+
+  @Test
+  public void unknownFunction() {
+    assertEquals("", run("no_such_function", "abc", null));
+  }
+}
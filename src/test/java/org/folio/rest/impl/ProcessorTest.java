@@ -7,8 +7,12 @@ import io.vertx.ext.unit.TestContext;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
 
 import org.apache.http.ProtocolVersion;
+import org.apache.http.entity.StringEntity;
 import org.apache.http.message.BasicHttpResponse;
 import org.apache.http.message.BasicStatusLine;
+import org.apache.http.util.EntityUtils;
+import org.folio.rest.marc.MarcCorpusGenerator;
+import org.folio.rest.struct.LoadMetrics;
 import org.folio.util.ResourceUtil;
 import org.junit.*;
 import org.junit.runner.RunWith;
@@ -20,6 +24,7 @@ import static org.junit.Assert.*;
 import java.io.*;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @RunWith(VertxUnitRunner.class)
 public class ProcessorTest {
@@ -28,6 +33,9 @@ public class ProcessorTest {
 
   @Mock
   private Requester requester;
+  // the body of the last instance and source COPY statement posted
+  private volatile String instancePostQuery;
+  private volatile String sourcePostQuery;
 
   @Before
   public void setUp(TestContext ctx) throws IOException {
@@ -35,7 +43,16 @@ public class ProcessorTest {
     MockitoAnnotations.initMocks(this);
     vertx = Vertx.vertx();
     BasicHttpResponse dummyResponse = createDummyResponse();
-    when(requester.post(anyString(), any(), anyMap())).thenReturn(dummyResponse);
+    when(requester.post(anyString(), any(), anyMap())).thenAnswer(invocation -> {
+      // read while posted, the batch buffer is reused afterwards
+      String body = EntityUtils.toString(invocation.getArgument(1), "UTF8");
+      if (body.contains("_mod_inventory_storage.instance_source_marc(")) {
+        sourcePostQuery = body;
+      } else {
+        instancePostQuery = body;
+      }
+      return dummyResponse;
+    });
 
     rulesFile = new JsonObject(ResourceUtil.asString("rules.json"));
   }
@@ -53,12 +70,23 @@ public class ProcessorTest {
   }
 
   private Processor process(TestContext ctx, String mrcFile, int bulkSize) {
+    return process(ctx, mrcFile, bulkSize, 0);
+  }
+
+  private Processor process(TestContext ctx, String mrcFile, int bulkSize, int mappingThreads) {
+    return process(ctx, mrcFile, bulkSize, mappingThreads, false);
+  }
+
+  private Processor process(TestContext ctx, String mrcFile, int bulkSize, int mappingThreads,
+      boolean fileBacked) {
     Async async = ctx.async();
     InputStream twoMarcInstances = this.getClass().getResourceAsStream(mrcFile);
     Map<String, String> okapiHeaders = new HashMap<>();
     Processor processor = new Processor("testTenantId", okapiHeaders, requester, true,
         "my-test-id");
     processor.setRulesFile(rulesFile);
+    processor.setMappingThreads(mappingThreads);
+    processor.setFileBacked(fileBacked);
     processor.process(false, twoMarcInstances, vertx.getOrCreateContext(),
         result -> async.complete(), bulkSize);
     async.awaitSuccess();
@@ -67,12 +95,12 @@ public class ProcessorTest {
 
   private void assertInstancePostQuery(String expectedFile, Processor processor)
       throws IOException {
-    assertEquals(ResourceUtil.asString(expectedFile), processor.getInstancePostQuery());
+    assertEquals(ResourceUtil.asString(expectedFile), instancePostQuery);
   }
 
   private void assertSourcePostQuery(String expectedFile, Processor processor)
       throws IOException {
-    assertEquals(ResourceUtil.asString(expectedFile), processor.getSourcePostQuery());
+    assertEquals(ResourceUtil.asString(expectedFile), sourcePostQuery);
   }
 
   private void assertSourceJson(String expectedFile, Processor processor)
@@ -88,6 +116,146 @@ public class ProcessorTest {
     assertSourcePostQuery  ("expected/msdb.bib.sub.source.query",   processor);
   }
 
+  @Test
+  public void msdbIsIndependentOfMappingThreads(TestContext ctx) throws IOException {
+    for (int mappingThreads : new int[] {1, 4}) {
+      Processor processor = process(ctx, "/sourceRecords/msdb.bib.sub", 20, mappingThreads);
+      assertInstancePostQuery("expected/msdb.bib.sub.instance.query", processor);
+      assertSourcePostQuery  ("expected/msdb.bib.sub.source.query",   processor);
+    }
+  }
+
+  @Test
+  public void msdbFileBacked(TestContext ctx) throws IOException {
+    Processor processor = process(ctx, "/sourceRecords/msdb.bib.sub", 20, 0, true);
+    assertInstancePostQuery("expected/msdb.bib.sub.instance.query", processor);
+    assertSourcePostQuery  ("expected/msdb.bib.sub.source.query",   processor);
+  }
+
+  @Test
+  public void msdbSharded(TestContext ctx) throws IOException {
+    Async async = ctx.async();
+    Processor processor = new Processor("testTenantId", new HashMap<>(), requester, true, "my-test-id");
+    processor.setRulesFile(rulesFile);
+    processor.setShards(2);
+    processor.process(false, this.getClass().getResourceAsStream("/sourceRecords/msdb.bib.sub"),
+      vertx.getOrCreateContext(), result -> {
+        String summary = result.result().getHeaderString("X-Unprocessed");
+        ctx.assertTrue(summary.contains("shards: #1 1 records in"), summary);
+        ctx.assertTrue(summary.contains("#2 1 records in"), summary);
+        async.complete();
+      }, 20);
+    async.awaitSuccess();
+    assertInstancePostQuery("expected/msdb.bib.sub.instance.query", processor);
+    assertSourcePostQuery  ("expected/msdb.bib.sub.source.query",   processor);
+  }
+
+  @Test
+  public void byteBudgetFlushesBeforeBulkSize(TestContext ctx) {
+    Async async = ctx.async();
+    Processor processor = new Processor("testTenantId", new HashMap<>(), requester, true, "my-test-id");
+    processor.setRulesFile(rulesFile);
+    processor.setBatchLimits(1, 0);
+    processor.process(false, this.getClass().getResourceAsStream("/sourceRecords/msdb.bib.sub"),
+      vertx.getOrCreateContext(), result -> {
+        ctx.assertTrue(result.result().getHeaderString("X-Unprocessed").contains("batches: 2 ("));
+        async.complete();
+      }, 20);
+    async.awaitSuccess();
+    // one instance and one source statement per record
+    verify(requester, times(4)).post(anyString(), any(), anyMap());
+  }
+
+  @Test
+  public void uploadErrorFailsTheJob(TestContext ctx) throws IOException {
+    BasicHttpResponse errorResponse = new BasicHttpResponse(
+      new BasicStatusLine(new ProtocolVersion("http", 1, 1), 400, "Bad Request"));
+    errorResponse.setEntity(new StringEntity("COPY failed", "UTF8"));
+    when(requester.post(anyString(), any(), anyMap())).thenReturn(errorResponse);
+
+    Async async = ctx.async();
+    Processor processor = new Processor("testTenantId", new HashMap<>(), requester, true, "my-test-id");
+    processor.setRulesFile(rulesFile);
+    processor.process(false, this.getClass().getResourceAsStream("/sourceRecords/msdb.bib.sub"),
+      vertx.getOrCreateContext(), result -> {
+        ctx.assertEquals(500, result.result().getStatus());
+        async.complete();
+      }, 1);
+    async.awaitSuccess();
+    verify(requester, times(1)).post(anyString(), any(), anyMap());
+  }
+
+  @Test
+  public void loadReportsProgress(TestContext ctx) {
+    Async async = ctx.async();
+    Processor processor = new Processor("testTenantId", new HashMap<>(), requester, true, "my-test-id");
+    processor.setRulesFile(rulesFile);
+    processor.load(false, this.getClass().getResourceAsStream("/sourceRecords/msdb.bib.sub"),
+      vertx.getOrCreateContext(), 1, result -> {
+        ctx.assertTrue(result.succeeded());
+        async.complete();
+      });
+    async.awaitSuccess();
+    assertEquals(2, processor.getRecordsRead());
+    assertEquals(2, processor.getRecordsMapped());
+    assertEquals(2, processor.getRecordsUploaded());
+    assertEquals(0, processor.getBatchesInFlight());
+    // every record is timed, the first record of the mapper is sampled, and each batch uploads once
+    LoadMetrics metrics = processor.getMetrics();
+    assertEquals(2, metrics.getStage(LoadMetrics.Stage.PARSE).getCount());
+    assertEquals(2, metrics.getStage(LoadMetrics.Stage.DATA_FIELDS).getCount());
+    assertEquals(1, metrics.getStage(LoadMetrics.Stage.ESCAPING).getCount());
+    assertEquals(2, metrics.getStage(LoadMetrics.Stage.UPLOAD).getCount());
+  }
+
+  @Test
+  public void cancelledLoadUploadsNothing(TestContext ctx) {
+    Async async = ctx.async();
+    Processor processor = new Processor("testTenantId", new HashMap<>(), requester, true, "my-test-id");
+    processor.setRulesFile(rulesFile);
+    processor.cancel();
+    processor.load(false, this.getClass().getResourceAsStream("/sourceRecords/msdb.bib.sub"),
+      vertx.getOrCreateContext(), 1, result -> {
+        ctx.assertTrue(result.failed());
+        ctx.assertEquals(Processor.CANCELLED, result.cause().getMessage());
+        async.complete();
+      });
+    async.awaitSuccess();
+    assertEquals(0, processor.getRecordsUploaded());
+    verify(requester, never()).post(anyString(), any(), anyMap());
+  }
+
+  @Test
+  public void cancelDuringTheLastUploadsFailsTheLoad(TestContext ctx) throws IOException {
+    MarcCorpusGenerator generator = new MarcCorpusGenerator(1);
+    generator.setRecords(3);
+    ByteArrayOutputStream corpus = new ByteArrayOutputStream();
+    generator.write(corpus);
+
+    Processor processor = new Processor("testTenantId", new HashMap<>(), requester, true, "my-test-id");
+    processor.setRulesFile(rulesFile);
+    // all records are mapped by now, cancel while the second of three batches uploads
+    AtomicInteger posts = new AtomicInteger();
+    BasicHttpResponse ok = createDummyResponse();
+    when(requester.post(anyString(), any(), anyMap())).thenAnswer(invocation -> {
+      if (posts.incrementAndGet() == 3) {
+        processor.cancel();
+      }
+      return ok;
+    });
+
+    Async async = ctx.async();
+    processor.load(false, new ByteArrayInputStream(corpus.toByteArray()), vertx.getOrCreateContext(), 1,
+      result -> {
+        ctx.assertTrue(result.failed());
+        ctx.assertEquals(Processor.CANCELLED, result.cause().getMessage());
+        async.complete();
+      });
+    async.awaitSuccess();
+    assertEquals(3, processor.getRecordsMapped());
+    assertTrue(processor.getRecordsUploaded() < 3);
+  }
+
   @Test
   public void oneEntryWithQuotationMarks(TestContext ctx) throws IOException {
     Processor processor = process(ctx, "/sourceRecords/one-entry-with-quotation-marks.mrc", 5);
@@ -0,0 +1,75 @@
+package org.folio.rest.javascript;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.script.ScriptException;
+
+import org.junit.Test;
+
+public class JSManagerTest {
+
+  @Test
+  public void scriptsWithTheSameHashCodeAreDistinct() throws ScriptException {
+    assertEquals("Aa".hashCode(), "BB".hashCode());
+    assertEquals("Aa", JSManager.runJScript("'Aa'", "x"));
+    assertEquals("BB", JSManager.runJScript("'BB'", "x"));
+  }
+
+  @Test
+  public void compiledOnceForAllThreads() throws Exception {
+    String script = "DATA.toUpperCase() + '-compiledOnceForAllThreads'";
+    assertEquals("A-compiledOnceForAllThreads", JSManager.runJScript(script, "a"));
+    assertEquals("B-compiledOnceForAllThreads", JSManager.runJScript(script, "b"));
+    assertEquals(1, JSManager.getCompileStats().get(script).getCompiles());
+
+    // a later load maps on new threads, they reuse the compiled script
+    ExecutorService other = Executors.newSingleThreadExecutor();
+    try {
+      Future<Object> result = other.submit(() -> JSManager.runJScript(script, "c"));
+      assertEquals("C-compiledOnceForAllThreads", result.get());
+    } finally {
+      other.shutdown();
+    }
+    assertEquals(1, JSManager.getCompileStats().get(script).getCompiles());
+  }
+
+  @Test
+  public void threadsDoNotShareData() throws Exception {
+    String script = "var x = DATA; java.lang.Thread.sleep(20); x + '-threadsDoNotShareData'";
+    ExecutorService threads = Executors.newFixedThreadPool(2);
+    try {
+      Future<Object> a = threads.submit(() -> JSManager.runJScript(script, "a"));
+      Future<Object> b = threads.submit(() -> JSManager.runJScript(script, "b"));
+      assertEquals("a-threadsDoNotShareData", a.get());
+      assertEquals("b-threadsDoNotShareData", b.get());
+    } finally {
+      threads.shutdown();
+    }
+  }
+
+  @Test
+  public void pureResultsAreReused() throws ScriptException {
+    String script = "DATA + '-pureResultsAreReused'";
+    long hits = JSManager.getMemoHits();
+    long misses = JSManager.getMemoMisses();
+    assertEquals("a-pureResultsAreReused", JSManager.runPureJScript(script, "a"));
+    assertEquals("a-pureResultsAreReused", JSManager.runPureJScript(script, "a"));
+    assertEquals("b-pureResultsAreReused", JSManager.runPureJScript(script, "b"));
+    assertEquals(hits + 1, JSManager.getMemoHits());
+    assertEquals(misses + 2, JSManager.getMemoMisses());
+  }
+
+  @Test
+  public void mutableResultsAreNotReused() throws ScriptException {
+    String script = "({value: DATA + '-mutableResultsAreNotReused'})";
+    long misses = JSManager.getMemoMisses();
+    Object first = JSManager.runPureJScript(script, "a");
+    Object second = JSManager.runPureJScript(script, "a");
+    assertNotSame(first, second);
+    assertEquals(misses + 2, JSManager.getMemoMisses());
+  }
+}
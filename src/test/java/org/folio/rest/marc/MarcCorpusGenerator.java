@@ -0,0 +1,428 @@
+package org.folio.rest.marc;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+
+import org.folio.rest.struct.ByteBuilder;
+
+/**
+ * Writes a file of synthetic binary MARC21 bibliographic records (UTF-8) for scale tests and benchmarks,
+ * so the loader can be run on millions of records without real catalog data. The records are made of
+ * pseudo words and are streamed, the size of the file is only bounded by the disk.
+ * <p>
+ * Each record is generated from its own random generator seeded by the seed and the record's position,
+ * so the same seed and settings always write the same bytes, and a duplicate - a copy of an earlier
+ * record - is generated again instead of being kept in memory. Configurable:
+ * <ul>
+ * <li>the field mix - the mean occurrences per record of each data field, 245 is always present once
+ * <li>the repeated subfield rate - the probability that a subfield is followed by another one with the
+ * same code
+ * <li>the record length - records are padded with 500 notes up to a target length drawn from a log normal
+ * distribution around the median
+ * <li>the duplicate rate - the probability that a record is a copy of a random earlier record
+ * </ul>
+ * Run from the command line with
+ * <pre>mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.folio.rest.marc.MarcCorpusGenerator
+ *   -Dexec.args="target/corpus.mrc 1000000 42"</pre>
+ * A generator reuses its record buffers and is not thread safe.
+ */
+public class MarcCorpusGenerator {
+
+  private static final int LEADER_LENGTH = 24;
+  private static final int MAX_RECORD_LENGTH = 99999;
+  private static final int MAX_FIELD_LENGTH = 9999;
+  // a note added to reach the target length is at most this long
+  private static final int MAX_NOTE_LENGTH = 1500;
+  private static final long SEED_MIX = 0x9E3779B97F4A7C15L;
+
+  private static final String[] SYLLABLES = {
+    "ka", "lo", "mi", "ne", "ru", "ta", "ve", "so", "pi", "dra", "gon", "ber", "stel", "qua", "rix",
+    "ö", "é", "ça", "ñu", "zy"
+  };
+  private static final String[] LANGUAGES = {"eng", "ger", "fre", "spa", "ita", "rus", "chi", "jpn", "lat"};
+  private static final String[] RELATORS = {"author.", "editor.", "illustrator.", "translator."};
+
+  private final long seed;
+  private long records = 1000;
+  private final Map<String, Double> fieldFrequencies = new TreeMap<>();
+  // the fields in tag order with their mean occurrences, 245 included
+  private String[] tags;
+  private double[] means;
+  private double repeatedSubfieldRate = 0.1;
+  private int medianRecordLength = 1200;
+  private double recordLengthSpread = 0.5;
+  private double duplicateRate;
+  private final RecordBuilder builder = new RecordBuilder();
+
+  public MarcCorpusGenerator(long seed) {
+    this.seed = seed;
+    // the data fields mapped by the bundled rules.json, with a typical density of a book catalog
+    fieldFrequencies.put("020", 0.7);
+    fieldFrequencies.put("035", 1.2);
+    fieldFrequencies.put("041", 0.2);
+    fieldFrequencies.put("050", 0.8);
+    fieldFrequencies.put("100", 0.8);
+    fieldFrequencies.put("246", 0.3);
+    fieldFrequencies.put("250", 0.3);
+    fieldFrequencies.put("260", 0.9);
+    fieldFrequencies.put("300", 1.0);
+    fieldFrequencies.put("500", 1.0);
+    fieldFrequencies.put("600", 0.4);
+    fieldFrequencies.put("650", 1.5);
+    fieldFrequencies.put("651", 0.3);
+    fieldFrequencies.put("690", 0.2);
+    fieldFrequencies.put("700", 0.8);
+    fieldFrequencies.put("710", 0.3);
+    fieldFrequencies.put("786", 0.05);
+  }
+
+  public void setRecords(long records) {
+    this.records = records;
+  }
+
+  /**
+   * @param tag - a data field tag, 010 to 999
+   * @param meanPerRecord - the mean occurrences of the field per record, 0 to leave the field out
+   */
+  public void setFieldFrequency(String tag, double meanPerRecord) {
+    if (tag.length() != 3 || tag.compareTo("010") < 0 || tag.equals("245")) {
+      throw new IllegalArgumentException("not a configurable data field: " + tag);
+    }
+    fieldFrequencies.put(tag, meanPerRecord);
+    tags = null;
+  }
+
+  /**
+   * @param repeatedSubfieldRate - the probability that a subfield is followed by another one with the same
+   *                             code, below 1
+   */
+  public void setRepeatedSubfieldRate(double repeatedSubfieldRate) {
+    if (repeatedSubfieldRate < 0 || repeatedSubfieldRate >= 1) {
+      throw new IllegalArgumentException("repeated subfield rate must be in [0, 1): " + repeatedSubfieldRate);
+    }
+    this.repeatedSubfieldRate = repeatedSubfieldRate;
+  }
+
+  /**
+   * @param median - the median target length of a record in bytes, a record whose fields are longer keeps
+   *               its length
+   * @param spread - the standard deviation of the logarithm of the target length, 0 for a fixed target
+   */
+  public void setRecordLength(int median, double spread) {
+    this.medianRecordLength = Math.min(median, MAX_RECORD_LENGTH);
+    this.recordLengthSpread = spread;
+  }
+
+  /**
+   * @param duplicateRate - the probability that a record is a copy of a random earlier record
+   */
+  public void setDuplicateRate(double duplicateRate) {
+    this.duplicateRate = duplicateRate;
+  }
+
+  /**
+   * write the records to out, out is not closed
+   */
+  public void write(OutputStream out) throws IOException {
+    for (long position = 0; position < records; position++) {
+      ByteBuilder record = build(position);
+      out.write(record.getBytes(), 0, record.length());
+    }
+  }
+
+  /**
+   * @return the bytes of the record at the position of the file, a copy of an earlier record for a
+   * duplicate
+   */
+  public byte[] record(long position) {
+    ByteBuilder record = build(position);
+    return Arrays.copyOf(record.getBytes(), record.length());
+  }
+
+  private ByteBuilder build(long position) {
+    long original = position;
+    // a duplicate of a duplicate is a copy of the record that one copies
+    while (original > 0 && duplicateRate > 0) {
+      SplittableRandom random = new SplittableRandom(mix(~seed, original));
+      if (random.nextDouble() >= duplicateRate) {
+        break;
+      }
+      original = random.nextLong(original);
+    }
+    if (tags == null) {
+      Map<String, Double> fields = new TreeMap<>(fieldFrequencies);
+      fields.put("245", 1.0);
+      tags = fields.keySet().toArray(new String[0]);
+      means = new double[tags.length];
+      for (int i = 0; i < tags.length; i++) {
+        means[i] = fields.get(tags[i]);
+      }
+    }
+    return generate(original, new SplittableRandom(mix(seed, original)));
+  }
+
+  /**
+   * @return a seed for the record at the position, the generators of different records and seeds do not
+   * run into each other's sequences
+   */
+  private static long mix(long seed, long position) {
+    long z = seed * SEED_MIX + position;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  private ByteBuilder generate(long id, SplittableRandom random) {
+    RecordBuilder record = builder.reset();
+    record.controlField("001", "syn" + padded(id, 9));
+    record.controlField("003", "SYN");
+    record.controlField("005", "2018" + padded(1 + random.nextInt(12), 2) + padded(1 + random.nextInt(28), 2)
+      + padded(random.nextInt(24), 2) + padded(random.nextInt(60), 2) + padded(random.nextInt(60), 2) + ".0");
+    String year = String.valueOf(1800 + random.nextInt(220));
+    record.controlField("008", "850610s" + year + "    nyu           000 1 "
+      + LANGUAGES[random.nextInt(LANGUAGES.length)] + " d");
+
+    // fields in tag order, as in a catalog record
+    for (int field = 0; field < tags.length; field++) {
+      int occurrences = tags[field].equals("245") ? 1 : poisson(random, means[field]);
+      for (int i = 0; i < occurrences; i++) {
+        dataField(record, tags[field], year, random);
+      }
+    }
+
+    // pad with notes up to the target length
+    double gaussian = gaussian(random);
+    long target = Math.round(medianRecordLength * Math.exp(recordLengthSpread * gaussian));
+    target = Math.min(target, MAX_RECORD_LENGTH - MAX_NOTE_LENGTH - 100);
+    while (record.length() + 20 < target) {
+      int length = (int) Math.min(MAX_NOTE_LENGTH, target - record.length());
+      record.dataField("500", ' ', ' ').subfield('a', words(random, length / 6 + 1)).end();
+    }
+    return record.build();
+  }
+
+  private void dataField(RecordBuilder record, String tag, String year, SplittableRandom random) {
+    switch (tag) {
+      case "020":
+        subfields(record.dataField(tag, ' ', ' '), 'a', digits(random, 10) + " (pbk.)", random).end();
+        return;
+      case "035":
+        subfields(record.dataField(tag, ' ', ' '), 'a', "(OCoLC)" + digits(random, 8), random).end();
+        return;
+      case "041":
+        record.dataField(tag, '1', ' ')
+          .subfield('a', LANGUAGES[random.nextInt(LANGUAGES.length)] + LANGUAGES[random.nextInt(LANGUAGES.length)])
+          .end();
+        return;
+      case "050":
+        record.dataField(tag, '0', '0')
+          .subfield('a', "PS" + (1000 + random.nextInt(8999)))
+          .subfield('b', ".A" + (1 + random.nextInt(99)) + " " + year)
+          .end();
+        return;
+      case "100":
+      case "600":
+      case "700":
+        subfields(record.dataField(tag, '1', ' '), 'a', name(random), random)
+          .subfield('d', year + "-")
+          .subfield('e', RELATORS[random.nextInt(RELATORS.length)])
+          .end();
+        return;
+      case "245":
+        record.dataField(tag, '1', '0')
+          .subfield('a', capitalize(words(random, 2 + random.nextInt(6))) + " :")
+          .subfield('b', words(random, 1 + random.nextInt(8)) + " /")
+          .subfield('c', "by " + name(random) + ".")
+          .end();
+        return;
+      case "260":
+        record.dataField(tag, ' ', ' ')
+          .subfield('a', capitalize(words(random, 1)) + " :")
+          .subfield('b', capitalize(words(random, 2)) + ",")
+          .subfield('c', year + ".")
+          .end();
+        return;
+      case "300":
+        record.dataField(tag, ' ', ' ')
+          .subfield('a', (50 + random.nextInt(900)) + " p. :")
+          .subfield('b', "ill. ;")
+          .subfield('c', (15 + random.nextInt(20)) + " cm.")
+          .end();
+        return;
+      default:
+        subfields(record.dataField(tag, ' ', '0'), 'a', capitalize(words(random, 1 + random.nextInt(5))), random)
+          .subfield('x', capitalize(words(random, 1 + random.nextInt(3))) + ".")
+          .end();
+    }
+  }
+
+  /**
+   * add the subfield, repeated with the repeated subfield rate
+   */
+  private RecordBuilder subfields(RecordBuilder field, char code, String data, SplittableRandom random) {
+    field.subfield(code, data);
+    while (random.nextDouble() < repeatedSubfieldRate) {
+      field.subfield(code, words(random, 1 + random.nextInt(4)));
+    }
+    return field;
+  }
+
+  private static String name(SplittableRandom random) {
+    return capitalize(words(random, 1)) + ", " + capitalize(words(random, 1));
+  }
+
+  private static String words(SplittableRandom random, int count) {
+    StringBuilder sb = new StringBuilder();
+    for (int w = 0; w < count; w++) {
+      if (w > 0) {
+        sb.append(' ');
+      }
+      int syllables = 1 + random.nextInt(3);
+      for (int s = 0; s < syllables; s++) {
+        sb.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+      }
+    }
+    return sb.toString();
+  }
+
+  private static String digits(SplittableRandom random, int count) {
+    StringBuilder sb = new StringBuilder(count);
+    for (int i = 0; i < count; i++) {
+      sb.append((char) ('0' + random.nextInt(10)));
+    }
+    return sb.toString();
+  }
+
+  private static String padded(long n, int digits) {
+    String s = Long.toString(n);
+    StringBuilder sb = new StringBuilder(digits);
+    for (int i = s.length(); i < digits; i++) {
+      sb.append('0');
+    }
+    return sb.append(s).toString();
+  }
+
+  private static String capitalize(String s) {
+    return s.isEmpty() ? s : Character.toUpperCase(s.charAt(0)) + s.substring(1);
+  }
+
+  private static int poisson(SplittableRandom random, double mean) {
+    if (mean <= 0) {
+      return 0;
+    }
+    double limit = Math.exp(-mean);
+    double product = random.nextDouble();
+    int n = 0;
+    while (product > limit) {
+      product *= random.nextDouble();
+      n++;
+    }
+    return n;
+  }
+
+  private static double gaussian(SplittableRandom random) {
+    // Box-Muller, 1 - u keeps the logarithm finite
+    double u = 1 - random.nextDouble();
+    double v = random.nextDouble();
+    return Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * v);
+  }
+
+  /**
+   * Assembles the leader, directory and fields of one record. The buffers are reused for the next record.
+   */
+  private static class RecordBuilder {
+
+    private final ByteBuilder directory = new ByteBuilder(1024);
+    private final ByteBuilder data = new ByteBuilder();
+    private final ByteBuilder record = new ByteBuilder();
+    private int fieldStart;
+    private String tag;
+
+    RecordBuilder reset() {
+      directory.setLength(0);
+      data.setLength(0);
+      return this;
+    }
+
+    void controlField(String tag, String value) {
+      this.tag = tag;
+      fieldStart = data.length();
+      data.append(value);
+      end();
+    }
+
+    RecordBuilder dataField(String tag, char indicator1, char indicator2) {
+      this.tag = tag;
+      fieldStart = data.length();
+      data.write(indicator1);
+      data.write(indicator2);
+      return this;
+    }
+
+    RecordBuilder subfield(char code, String value) {
+      data.write(MarcRecord.SUBFIELD_DELIMITER);
+      data.write(code);
+      data.append(value);
+      return this;
+    }
+
+    void end() {
+      data.write(MarcRecord.FIELD_TERMINATOR);
+      int fieldLength = data.length() - fieldStart;
+      if (fieldLength > MAX_FIELD_LENGTH) {
+        throw new IllegalStateException("field " + tag + " longer than " + MAX_FIELD_LENGTH + " bytes");
+      }
+      directory.append(tag);
+      writeNumber(directory, fieldLength, 4);
+      writeNumber(directory, fieldStart, 5);
+    }
+
+    int length() {
+      return LEADER_LENGTH + directory.length() + 1 + data.length() + 1;
+    }
+
+    /**
+     * @return the record, valid until the next record is built
+     */
+    ByteBuilder build() {
+      record.setLength(0);
+      writeNumber(record, length(), 5);
+      record.append("nam a22");
+      writeNumber(record, LEADER_LENGTH + directory.length() + 1, 5);
+      record.append("   4500");
+      record.append(directory, 0, directory.length());
+      record.write(MarcRecord.FIELD_TERMINATOR);
+      record.append(data, 0, data.length());
+      record.write(MarcRecord.RECORD_TERMINATOR);
+      return record;
+    }
+
+    private static void writeNumber(ByteBuilder out, int n, int digits) {
+      for (int divisor = (int) Math.pow(10, digits - 1); divisor > 0; divisor /= 10) {
+        out.write('0' + n / divisor % 10);
+      }
+    }
+  }
+
+  /**
+   * args: file, records, optional seed (default 1)
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      System.err.println("usage: MarcCorpusGenerator <file> <records> [seed]");
+      return;
+    }
+    MarcCorpusGenerator generator = new MarcCorpusGenerator(args.length > 2 ? Long.parseLong(args[2]) : 1);
+    generator.setRecords(Long.parseLong(args[1]));
+    try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(Paths.get(args[0])), 1 << 16)) {
+      generator.write(out);
+    }
+  }
+}
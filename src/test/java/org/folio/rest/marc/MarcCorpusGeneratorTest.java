@@ -0,0 +1,125 @@
+package org.folio.rest.marc;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+import org.marc4j.MarcStreamReader;
+import org.marc4j.marc.Record;
+
+public class MarcCorpusGeneratorTest {
+
+  private static byte[] generate(MarcCorpusGenerator generator) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    generator.write(out);
+    return out.toByteArray();
+  }
+
+  private static MarcCorpusGenerator generator(long seed, long records) {
+    MarcCorpusGenerator generator = new MarcCorpusGenerator(seed);
+    generator.setRecords(records);
+    return generator;
+  }
+
+  @Test
+  public void sameSeedSameFile() throws IOException {
+    assertArrayEquals(generate(generator(42, 300)), generate(generator(42, 300)));
+    assertFalse(Arrays.equals(generate(generator(42, 300)), generate(generator(43, 300))));
+  }
+
+  @Test
+  public void recordDoesNotDependOnTheFileSize() throws IOException {
+    byte[] small = generate(generator(7, 10));
+    byte[] large = generate(generator(7, 20));
+    assertArrayEquals(small, Arrays.copyOf(large, small.length));
+  }
+
+  @Test
+  public void decodesAsMarcStreamReader() throws IOException {
+    byte[] file = generate(generator(1, 500));
+    MarcStreamReader reader = new MarcStreamReader(new ByteArrayInputStream(file), "UTF-8");
+    MarcRecordReader recordReader = new MarcRecordReader(new ByteArrayInputStream(file));
+    MarcRecord record = new MarcRecord();
+    int n = 0;
+    while (reader.hasNext()) {
+      Record expected = reader.next();
+      byte[] bytes = recordReader.next();
+      record.wrap(ByteBuffer.wrap(bytes));
+      assertEquals(expected.getLeader().getRecordLength(), bytes.length);
+      assertEquals(expected.getControlNumber(), record.getData(0));
+      assertEquals(expected.getControlFields().size() + expected.getDataFields().size(), record.getFieldCount());
+      assertNotNull(expected.getVariableField("245"));
+      n++;
+    }
+    assertNull(recordReader.next());
+    assertEquals(500, n);
+  }
+
+  @Test
+  public void recordLength() throws IOException {
+    MarcCorpusGenerator generator = generator(3, 1000);
+    generator.setRecordLength(4000, 0.3);
+    MarcRecordReader reader = new MarcRecordReader(new ByteArrayInputStream(generate(generator)));
+    List<Integer> lengths = new ArrayList<>();
+    byte[] bytes;
+    while ((bytes = reader.next()) != null) {
+      lengths.add(bytes.length);
+    }
+    Collections.sort(lengths);
+    int median = lengths.get(lengths.size() / 2);
+    assertTrue("median " + median, median > 3800 && median < 4300);
+    assertTrue(lengths.get(0) < lengths.get(lengths.size() - 1) / 2);
+  }
+
+  @Test
+  public void duplicateRate() {
+    MarcCorpusGenerator generator = generator(5, 2000);
+    generator.setDuplicateRate(0.25);
+    MarcRecord record = new MarcRecord();
+    Set<String> controlNumbers = new HashSet<>();
+    int duplicates = 0;
+    for (int position = 0; position < 2000; position++) {
+      byte[] bytes = generator.record(position);
+      if (!controlNumbers.add(record.wrap(ByteBuffer.wrap(bytes)).getData(0))) {
+        duplicates++;
+        // a duplicate is a copy of the whole record
+        assertArrayEquals(generator.record(Integer.parseInt(record.getData(0).substring(3))), bytes);
+      }
+    }
+    assertTrue("duplicates " + duplicates, duplicates > 400 && duplicates < 600);
+  }
+
+  @Test
+  public void fieldMixAndRepeatedSubfields() {
+    MarcCorpusGenerator generator = generator(9, 200);
+    generator.setFieldFrequency("650", 0);
+    generator.setFieldFrequency("035", 5);
+    generator.setRepeatedSubfieldRate(0.5);
+    MarcRecord record = new MarcRecord();
+    MarcDataField dataField = new MarcDataField();
+    int fields035 = 0;
+    int repeated = 0;
+    for (int position = 0; position < 200; position++) {
+      record.wrap(ByteBuffer.wrap(generator.record(position)));
+      for (int field = 0; field < record.getFieldCount(); field++) {
+        assertNotEquals("650", record.getTagString(field));
+        if (record.getTagString(field).equals("035")) {
+          fields035++;
+          repeated += dataField.select(record, field).getSubfieldCount() - 1;
+        }
+      }
+    }
+    assertTrue("035 fields " + fields035, fields035 > 850 && fields035 < 1150);
+    assertTrue("repeated $a " + repeated, repeated > fields035 / 2 && repeated < fields035 * 3 / 2);
+  }
+}
@@ -0,0 +1,134 @@
+package org.folio.rest.marc;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.BitSet;
+import java.util.Iterator;
+
+import org.junit.Test;
+import org.marc4j.MarcStreamReader;
+import org.marc4j.marc.ControlField;
+import org.marc4j.marc.DataField;
+import org.marc4j.marc.Record;
+import org.marc4j.marc.Subfield;
+
+public class MarcRecordTest {
+
+  private static final Path FILE = Paths.get("src/test/resources/msplit00000000.mrc");
+
+  private static void assertSameRecord(Record expected, MarcRecord actual) {
+    assertEquals(expected.getLeader().toString(), actual.getLeader());
+    Iterator<ControlField> controlFields = expected.getControlFields().iterator();
+    Iterator<DataField> dataFields = expected.getDataFields().iterator();
+    MarcDataField dataField = new MarcDataField();
+    for (int field = 0; field < actual.getFieldCount(); field++) {
+      if (actual.isControlField(field)) {
+        ControlField controlField = controlFields.next();
+        assertEquals(controlField.getTag(), actual.getTagString(field));
+        assertEquals(controlField.getData(), actual.getData(field));
+        continue;
+      }
+      DataField expectedField = dataFields.next();
+      assertEquals(expectedField.getTag(), actual.getTagString(field));
+      dataField.select(actual, field);
+      assertEquals(expectedField.getIndicator1(), dataField.getIndicator1());
+      assertEquals(expectedField.getIndicator2(), dataField.getIndicator2());
+      assertEquals(expectedField.getSubfields().size(), dataField.getSubfieldCount());
+      int n = 0;
+      for (Subfield subfield : expectedField.getSubfields()) {
+        assertEquals(subfield.getCode(), dataField.getCode(n));
+        assertEquals(subfield.getData(), dataField.getData(n));
+        n++;
+      }
+    }
+    assertFalse(controlFields.hasNext());
+    assertFalse(dataFields.hasNext());
+  }
+
+  @Test
+  public void decodesAsMarcStreamReader() throws IOException {
+    try (InputStream expected = Files.newInputStream(FILE);
+         InputStream actual = Files.newInputStream(FILE)) {
+      MarcStreamReader reader = new MarcStreamReader(expected);
+      MarcRecordReader recordReader = new MarcRecordReader(actual);
+      MarcRecord record = new MarcRecord();
+      int n = 0;
+      while (reader.hasNext()) {
+        assertSameRecord(reader.next(), record.wrap(ByteBuffer.wrap(recordReader.next())));
+        n++;
+      }
+      assertNull(recordReader.next());
+      assertEquals(500, n);
+    }
+  }
+
+  @Test
+  public void decodesUtf8() throws IOException {
+    try (InputStream in = Files.newInputStream(Paths.get("src/test/resources/sourceRecords/msdb.bib.sub"))) {
+      MarcRecordReader recordReader = new MarcRecordReader(in);
+      MarcRecord record = new MarcRecord();
+      byte[] bytes = recordReader.next();
+      assertSameRecord(new MarcStreamReader(new ByteArrayInputStream(bytes)).next(),
+        record.wrap(ByteBuffer.wrap(bytes)));
+    }
+  }
+
+  @Test
+  public void tags() throws IOException {
+    byte[] bytes = Files.readAllBytes(FILE);
+    MarcRecord record = new MarcRecord().wrap(ByteBuffer.wrap(bytes));
+    assertEquals(1, record.getTag(0));
+    assertSame("001", record.getTagString(0));
+    assertTrue(record.isControlField(0));
+  }
+
+  @Test
+  public void unreferencedTagsAreSkipped() throws IOException {
+    byte[] bytes = Files.readAllBytes(FILE);
+    BitSet tags = new BitSet(1000);
+    tags.set(1);
+    tags.set(245);
+    MarcRecord all = new MarcRecord().wrap(ByteBuffer.wrap(bytes));
+    MarcRecord referenced = new MarcRecord().wrap(ByteBuffer.wrap(bytes), tags);
+    int n = 0;
+    for (int field = 0; field < all.getFieldCount(); field++) {
+      if (tags.get(all.getTag(field))) {
+        assertEquals(all.getTagString(field), referenced.getTagString(n));
+        assertEquals(all.getData(field), referenced.getData(n));
+        n++;
+      }
+    }
+    assertEquals(2, n);
+    assertEquals(n, referenced.getFieldCount());
+    assertTrue(referenced.isControlField(0));
+    assertFalse(referenced.isControlField(1));
+  }
+
+  @Test
+  public void brokenLeaderIsFramedByTerminator() throws IOException {
+    byte[] bytes = Files.readAllBytes(FILE);
+    bytes[0] = 'x';
+    MarcRecordReader recordReader = new MarcRecordReader(new ByteArrayInputStream(bytes));
+    int n = 0;
+    byte[] record;
+    while ((record = recordReader.next()) != null) {
+      assertEquals(MarcRecord.RECORD_TERMINATOR, record[record.length - 1]);
+      n++;
+    }
+    assertEquals(500, n);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void brokenDirectory() throws IOException {
+    byte[] bytes = Files.readAllBytes(FILE);
+    bytes[12] = 'x';
+    new MarcRecord().wrap(ByteBuffer.wrap(bytes));
+  }
+}
@@ -0,0 +1,90 @@
+package org.folio.rest.rules;
+
+import io.vertx.core.json.JsonObject;
+
+import org.folio.util.ResourceUtil;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+
+public class CharSelectTableTest {
+
+  private static CharSelectTable table(String rules) {
+    MappingPlan plan = MappingPlan.compile(new JsonObject(
+      "{\"008\":[{\"subfield\":[],\"target\":\"instanceTypeId\",\"rules\":" + rules + "}]}"));
+    return plan.getControlFieldMappings("008")[0].getCharSelectTable();
+  }
+
+  private static String condition(String parameter, String value, boolean leader) {
+    return "{\"type\":\"char_select\",\"parameter\":\"" + parameter + "\",\"value\":\"" + value + "\""
+      + (leader ? ",\"LDR\":true}" : "}");
+  }
+
+  @Test
+  public void rulesJson() throws IOException {
+    MappingPlan plan = MappingPlan.compile(new JsonObject(ResourceUtil.asString("rules.json")));
+    CharSelectTable table = plan.getControlFieldMappings("008")[0].getCharSelectTable();
+    assertTrue(table.usesLeader());
+    assertEquals(0, table.match("78xxxx", "0xxxx"));
+    assertEquals(-1, table.match("78xxxx", "1xxxx"));
+    assertEquals(-1, table.match("79xxxx", "0xxxx"));
+    //no value to compare to
+    assertNull(plan.getControlFieldMappings("008")[1].getCharSelectTable());
+  }
+
+  @Test
+  public void firstRuleMetWins() {
+    CharSelectTable table = table("["
+      + "{\"conditions\":[" + condition("0", "a", false) + "," + condition("1-2", "bc", false) + "],\"value\":\"first\"},"
+      + "{\"conditions\":[" + condition("0", "a", false) + "],\"value\":\"second\"},"
+      + "{\"conditions\":[],\"value\":\"always\"}]");
+    assertFalse(table.usesLeader());
+    assertEquals(0, table.match("abc", null));
+    assertEquals(1, table.match("abx", null));
+    assertEquals(2, table.match("xbc", null));
+  }
+
+  @Test
+  public void positionBeyondDataSelectsAllData() {
+    CharSelectTable table = table("[{\"conditions\":[" + condition("5", "a", false) + "],\"value\":\"x\"}]");
+    assertEquals(0, table.match("a", null));
+    assertEquals(-1, table.match("ab", null));
+  }
+
+  @Test
+  public void conditionsAfterLeaderConditionSelectFromLeader() {
+    CharSelectTable table = table("[{\"conditions\":["
+      + condition("0", "l", true) + "," + condition("1", "m", false) + "],\"value\":\"x\"}]");
+    assertEquals(0, table.match("ab", "lm"));
+    assertEquals(-1, table.match("am", "la"));
+  }
+
+  @Test
+  public void differentValuesAtOnePositionNeverMatch() {
+    CharSelectTable table = table("[{\"conditions\":["
+      + condition("0", "a", false) + "," + condition("0", "b", false) + "],\"value\":\"x\"}]");
+    assertEquals(-1, table.match("a", null));
+    assertEquals(-1, table.match("b", null));
+  }
+
+  @Test
+  public void manyRules() {
+    StringBuilder rules = new StringBuilder("[");
+    for (int i = 0; i < 100; i++) {
+      rules.append(i == 0 ? "" : ",").append("{\"conditions\":[").append(condition("0-1", String.format("%02d", i), false))
+        .append("],\"value\":\"").append(i).append("\"}");
+    }
+    CharSelectTable table = table(rules.append("]").toString());
+    assertEquals(5, table.match("05", null));
+    assertEquals(99, table.match("99x", null));
+    assertEquals(-1, table.match("x9", null));
+  }
+
+  @Test
+  public void otherFunctionsAreNotTabled() {
+    assertNull(table("[{\"conditions\":[{\"type\":\"trim\",\"value\":\"a\"}],\"value\":\"x\"}]"));
+    assertNull(table("[{\"conditions\":[" + condition("0", "a", false) + "]}]"));
+  }
+}
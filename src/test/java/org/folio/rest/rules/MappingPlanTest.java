@@ -0,0 +1,114 @@
+package org.folio.rest.rules;
+
+import io.vertx.core.json.JsonObject;
+
+import org.folio.rest.impl.NormalizationFunctions;
+import org.folio.util.ResourceUtil;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+
+public class MappingPlanTest {
+
+  private MappingPlan plan;
+
+  @Before
+  public void setUp() throws IOException {
+    plan = MappingPlan.compile(new JsonObject(ResourceUtil.asString("rules.json")));
+  }
+
+  @Test
+  public void controlFieldRules() {
+    TargetMapping[] mappings = plan.getControlFieldMappings("008");
+    assertEquals(2, mappings.length);
+    assertArrayEquals(new String[] {"instanceTypeId"}, mappings[0].getPath());
+
+    Rule rule = mappings[0].getRules()[0];
+    assertEquals("book", rule.getValue());
+    assertEquals(3, rule.getConditions().length);
+    Condition ldr = rule.getConditions()[2];
+    assertTrue(ldr.isLeader());
+    assertFalse(ldr.isCustom());
+    assertEquals("0", ldr.getParameter());
+    assertArrayEquals(new NormalizationFunctions.Function[] {NormalizationFunctions.Function.CHAR_SELECT},
+      ldr.getFunctions());
+  }
+
+  @Test
+  public void functionsAreTrimmedAndResolved() {
+    Condition condition = plan.getDataFieldMappings("245")[1].getTargets()[0].getRules()[0].getConditions()[0];
+    assertTrue(condition.isCustom());
+    assertArrayEquals(new NormalizationFunctions.Function[] {
+      NormalizationFunctions.Function.CUSTOM, NormalizationFunctions.Function.TRIM}, condition.getFunctions());
+  }
+
+  @Test
+  public void delimiters() {
+    TargetMapping mapping = plan.getDataFieldMappings("600")[0].getTargets()[0];
+    assertArrayEquals(new String[] {"--", " ", "&&&"}, mapping.getDelimiters());
+    assertEquals("&&&", mapping.getSeparator());
+    assertEquals(0, mapping.getDelimiterGroup('x'));
+    assertEquals(1, mapping.getDelimiterGroup('b'));
+    assertEquals(-1, mapping.getDelimiterGroup('q'));
+    assertTrue(mapping.hasSubfield('z'));
+    assertFalse(mapping.hasSubfield('q'));
+  }
+
+  @Test
+  public void entity() {
+    FieldMapping[] mappings = plan.getDataFieldMappings("041");
+    assertTrue(mappings[0].isEntityRequested());
+    assertTrue(mappings[0].isEntityPerRepeatedSubfield());
+    assertTrue(mappings[0].getTargets()[0].getSubFieldSplit().isCustom());
+    assertFalse(mappings[1].isEntityRequested());
+    assertArrayEquals(new String[] {"languages"}, mappings[1].getTargets()[0].getPath());
+  }
+
+  @Test
+  public void referencedTags() {
+    assertEquals(18, plan.getReferencedTags().cardinality());
+    assertTrue(plan.getReferencedTags().get(1));
+    assertTrue(plan.getReferencedTags().get(245));
+    assertFalse(plan.getReferencedTags().get(5));
+    assertFalse(plan.getReferencedTags().get(999));
+  }
+
+  @Test
+  public void pureCondition() {
+    assertFalse(plan.getDataFieldMappings("245")[1].getTargets()[0].getRules()[0].getConditions()[0].isPure());
+    MappingPlan pure = MappingPlan.compile(new JsonObject("{\"245\":[{\"subfield\":[\"a\"],\"target\":\"title\","
+      + "\"rules\":[{\"conditions\":[{\"type\":\"custom\",\"pure\":true,\"value\":\"DATA\"}]}]}]}"));
+    assertTrue(pure.getDataFieldMappings("245")[0].getTargets()[0].getRules()[0].getConditions()[0].isPure());
+  }
+
+  @Test
+  public void regexIsCompiledOnce() {
+    MappingPlan regex = MappingPlan.compile(new JsonObject("{\"245\":[{\"subfield\":[\"a\"],\"target\":\"title\","
+      + "\"rules\":[{\"conditions\":[{\"type\":\"regex_replace\",\"parameter\":\"(\\\\w+), (\\\\w+)\","
+      + "\"replacement\":\"$2 $1\"}]}]}]}"));
+    Condition condition = regex.getDataFieldMappings("245")[0].getTargets()[0].getRules()[0].getConditions()[0];
+    assertEquals("(\\w+), (\\w+)", condition.getPattern().pattern());
+    assertEquals("$2 $1", condition.getReplacement());
+    assertNull(plan.getDataFieldMappings("245")[1].getTargets()[0].getRules()[0].getConditions()[0].getPattern());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void invalidRegex() {
+    MappingPlan.compile(new JsonObject("{\"245\":[{\"subfield\":[\"a\"],\"target\":\"title\","
+      + "\"rules\":[{\"conditions\":[{\"type\":\"regex_match\",\"parameter\":\"(\"}]}]}]}"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void conditionWithoutType() {
+    MappingPlan.compile(new JsonObject(
+      "{\"245\":[{\"subfield\":[\"a\"],\"target\":\"title\",\"rules\":[{\"conditions\":[{\"value\":\"x\"}]}]}]}"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void mappingWithoutTarget() {
+    MappingPlan.compile(new JsonObject("{\"245\":[{\"subfield\":[\"a\"]}]}"));
+  }
+}
@@ -0,0 +1,68 @@
+package org.folio.rest.service;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.folio.rest.marc.MarcRecord;
+import org.folio.rest.marc.MarcRecordReader;
+import org.junit.Test;
+
+public class MappedMarcFileTest {
+
+  private static final Path FILE = Paths.get("src/test/resources/msplit00000000.mrc");
+
+  @Test
+  public void indexMatchesRecordReader() throws IOException {
+    try (MappedMarcFile file = new MappedMarcFile(FILE, false);
+         InputStream in = Files.newInputStream(FILE)) {
+      MarcRecordReader reader = new MarcRecordReader(in);
+      int n = 0;
+      long length = 0;
+      byte[] expected;
+      while ((expected = reader.next()) != null) {
+        assertEquals(ByteBuffer.wrap(expected), file.getBytes(n));
+        length += file.getLength(n);
+        n++;
+      }
+      assertEquals(500, n);
+      assertEquals(n, file.size());
+      assertEquals(Files.size(FILE), length);
+    }
+  }
+
+  @Test
+  public void randomAccess() throws IOException {
+    try (MappedMarcFile file = new MappedMarcFile(FILE, false)) {
+      assertEquals(0, file.getOffset(0));
+      assertEquals(file.getOffset(250) + file.getLength(250), file.getOffset(251));
+      assertEquals(0x1D, file.getBytes(499).get(file.getLength(499) - 1));
+    }
+  }
+
+  @Test
+  public void brokenLeaderFallsBackToTerminator() throws IOException {
+    byte[] bytes = Files.readAllBytes(FILE);
+    bytes[0] = 'x';
+    Path broken = Files.createTempFile("broken-", ".mrc");
+    Files.write(broken, bytes);
+    try (MappedMarcFile file = new MappedMarcFile(broken, true)) {
+      assertEquals(500, file.size());
+      assertTrue(new MarcRecord().wrap(file.getBytes(1)).getFieldCount() > 0);
+    }
+    assertFalse(Files.exists(broken));
+  }
+
+  @Test
+  public void spool() throws IOException {
+    try (InputStream in = Files.newInputStream(FILE);
+         MappedMarcFile file = MappedMarcFile.spool(in)) {
+      assertEquals(500, file.size());
+    }
+  }
+}
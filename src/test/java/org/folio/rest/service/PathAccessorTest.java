@@ -0,0 +1,82 @@
+package org.folio.rest.service;
+
+import org.folio.rest.jaxrs.model.Instance;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PathAccessorTest {
+
+  public static class Counts {
+    private int count;
+    private boolean suppressed;
+
+    public int getCount() {
+      return count;
+    }
+
+    public void setCount(int count) {
+      this.count = count;
+    }
+
+    public boolean getSuppressed() {
+      return suppressed;
+    }
+
+    public void setSuppressed(boolean suppressed) {
+      this.suppressed = suppressed;
+    }
+  }
+
+  @Test
+  public void accessorsAreCached() {
+    assertSame(PathAccessor.of(Instance.class, "identifiers.value"),
+      PathAccessor.of(Instance.class, new String[] {"identifiers", "value"}));
+  }
+
+  @Test
+  public void validity() {
+    assertTrue(PathAccessor.of(Instance.class, "title").isValid());
+    assertTrue(PathAccessor.of(Instance.class, "languages").isValid());
+    assertTrue(PathAccessor.of(Instance.class, "identifiers.value").isValid());
+    assertFalse(PathAccessor.of(Instance.class, "identifiers").isValid());
+    assertFalse(PathAccessor.of(Instance.class, "noSuchField").isValid());
+  }
+
+  @Test
+  public void populateComplexObjectFromSeveralValues() {
+    Instance instance = new Instance();
+    Object[] remember = new Object[] { null };
+    assertTrue(PathAccessor.of(Instance.class, "identifiers.value").set(instance, true, "123", remember));
+    assertTrue(PathAccessor.of(Instance.class, "identifiers.identifierTypeId").set(instance, false, "isbn", remember));
+    assertEquals(1, instance.getIdentifiers().size());
+    assertEquals("123", instance.getIdentifiers().get(0).getValue());
+    assertEquals("isbn", instance.getIdentifiers().get(0).getIdentifierTypeId());
+  }
+
+  @Test
+  public void populatePrimitives() {
+    Instance instance = new Instance();
+    Object[] remember = new Object[] { null };
+    PathAccessor title = PathAccessor.of(Instance.class, "title");
+    assertTrue(title.set(instance, true, title.toValue("a title"), remember));
+    assertTrue(PathAccessor.of(Instance.class, "languages").set(instance, true, "eng", remember));
+    assertEquals("a title", instance.getTitle());
+    assertEquals("eng", instance.getLanguages().get(0));
+  }
+
+  @Test
+  public void populatePrimitiveSetters() {
+    Counts counts = new Counts();
+    Object[] remember = new Object[] { null };
+    PathAccessor count = PathAccessor.of(Counts.class, "count");
+    PathAccessor suppressed = PathAccessor.of(Counts.class, "suppressed");
+    assertTrue(count.isValid());
+    assertTrue(count.set(counts, true, count.toValue("3"), remember));
+    assertTrue(suppressed.set(counts, true, suppressed.toValue("true"), remember));
+    assertEquals(3, counts.getCount());
+    assertTrue(counts.getSuppressed());
+    assertFalse(count.set(counts, true, "4", remember));
+    assertEquals(3, counts.getCount());
+  }
+}
@@ -0,0 +1,42 @@
+package org.folio.rest.struct;
+
+import static org.junit.Assert.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class ByteBuilderTest {
+
+  private static void assertEncodedAsGetBytes(String s) {
+    ByteBuilder builder = new ByteBuilder(1);
+    builder.append("|").append(s).append("|");
+    byte[] expected = ("|" + s + "|").getBytes(StandardCharsets.UTF_8);
+    assertArrayEquals(s, expected, Arrays.copyOf(builder.getBytes(), builder.length()));
+  }
+
+  @Test
+  public void appendEncodesUtf8() {
+    assertEncodedAsGetBytes("");
+    assertEncodedAsGetBytes("ascii only");
+    assertEncodedAsGetBytes("Ärger über Œuvres ß");
+    assertEncodedAsGetBytes("日本語のタイトル");
+    assertEncodedAsGetBytes("\u0000\u007f\u0080߿ࠀ￿");
+    assertEncodedAsGetBytes("surrogate pair 𝄞 music");
+  }
+
+  @Test
+  public void unpairedSurrogatesAsGetBytes() {
+    assertEncodedAsGetBytes("high \uD834 alone");
+    assertEncodedAsGetBytes("low \uDD1E alone");
+    assertEncodedAsGetBytes("at the end \uD834");
+    assertEncodedAsGetBytes("\uDD1E\uD834 reversed");
+  }
+
+  @Test
+  public void toStringDecodes() {
+    String s = "Ärger 𝄞 日本";
+    assertEquals(s, new ByteBuilder().append(s).toString());
+  }
+}
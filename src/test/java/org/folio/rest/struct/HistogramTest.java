@@ -0,0 +1,70 @@
+package org.folio.rest.struct;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import io.vertx.core.json.JsonObject;
+
+public class HistogramTest {
+
+  @Test
+  public void empty() {
+    Histogram histogram = new Histogram();
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getPercentile(0.99));
+    assertEquals(0, histogram.toJson(1).getJsonArray("buckets").size());
+  }
+
+  @Test
+  public void percentilesAreBucketBounds() {
+    Histogram histogram = new Histogram();
+    for (int i = 1; i <= 100; i++) {
+      histogram.add(i);
+    }
+    assertEquals(100, histogram.getCount());
+    assertEquals(5050, histogram.getSum());
+    assertEquals(100, histogram.getMax());
+    // 50 falls into 32..63, 99 into 64..127 which is capped by the max
+    assertEquals(63, histogram.getPercentile(0.5));
+    assertEquals(100, histogram.getPercentile(0.99));
+  }
+
+  @Test
+  public void zeroAndNegativeGoToTheFirstBucket() {
+    Histogram histogram = new Histogram();
+    histogram.add(0);
+    histogram.add(-5);
+    JsonObject bucket = histogram.toJson(1).getJsonArray("buckets").getJsonObject(0);
+    assertEquals(0L, (long) bucket.getLong("le"));
+    assertEquals(2L, (long) bucket.getLong("count"));
+  }
+
+  @Test
+  public void toJsonDividesValues() {
+    Histogram histogram = new Histogram();
+    histogram.add(3000);
+    histogram.add(5000);
+    JsonObject json = histogram.toJson(1000);
+    assertEquals(2L, (long) json.getLong("count"));
+    assertEquals(8L, (long) json.getLong("sum"));
+    assertEquals(4L, (long) json.getLong("mean"));
+    assertEquals(5L, (long) json.getLong("max"));
+  }
+
+  @Test
+  public void loadMetricsAddToTheirParent() {
+    LoadMetrics tenant = new LoadMetrics();
+    LoadMetrics job1 = new LoadMetrics(tenant);
+    LoadMetrics job2 = new LoadMetrics(tenant);
+    job1.record(LoadMetrics.Stage.UPLOAD, 1000);
+    job2.record(LoadMetrics.Stage.UPLOAD, 2000);
+    job2.recordBatch(10, 500);
+    assertEquals(1, job1.getStage(LoadMetrics.Stage.UPLOAD).getCount());
+    assertEquals(2, tenant.getStage(LoadMetrics.Stage.UPLOAD).getCount());
+    assertEquals(3000, tenant.getStage(LoadMetrics.Stage.UPLOAD).getSum());
+    JsonObject json = tenant.toJson();
+    assertEquals(1L, (long) json.getJsonObject("batchRecords").getLong("count"));
+    assertEquals(16L, (long) json.getJsonObject("stages").getJsonObject("escaping").getLong("sampleInterval"));
+  }
+}
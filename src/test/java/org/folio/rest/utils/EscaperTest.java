@@ -31,4 +31,41 @@ public class EscaperTest {
     assertEquals("\\\r", Escaper.escapeSqlCopyFrom("\r"));
     assertEquals(escapedBackslashWithDoubleQuote, Escaper.escapeSqlCopyFrom(backslashWithDoubleQuote));
   }
+
+  @Test
+  public void escapeTest() {
+    assertEquals("a\\\\b", Escaper.escape("a\\b"));
+    assertEquals("a\\\\b", Escaper.escape("a\\\\b"));
+    assertEquals("a\\\\\\\\b", Escaper.escape("a\\\\\\b"));
+    assertEquals("end", Escaper.escape("end\\"));
+    assertEquals("end\\", Escaper.escape("end\\\\"));
+    assertEquals("", Escaper.escape("\\"));
+    assertEquals("\\\"quoted\\\"", Escaper.escape("\"quoted\""));
+    assertEquals("\\\\\\\"", Escaper.escape("\\\""));
+    assertEquals("a b", Escaper.escape("a|b"));
+    assertEquals("\\\\ ", Escaper.escape("\\|"));
+    assertEquals("é\\\\ü \\\"中", Escaper.escape("é\\ü|\"中"));
+  }
+
+  @Test
+  public void nothingToEscapeReturnsTheInput() {
+    String s = "nothing to escape";
+    assertSame(s, Escaper.escape(s));
+    assertSame(s, Escaper.escapeSqlCopyFrom(s));
+  }
+
+  @Test
+  public void appendVariants() {
+    StringBuilder sb = new StringBuilder("x");
+    Escaper.escape("a|\\b\"", sb);
+    Escaper.escapeSqlCopyFrom("|\\", sb);
+    assertEquals("xa \\\\b\\\"\\|\\\\", sb.toString());
+  }
+
+  @Test
+  public void unescapeSqlCopyFromTest() {
+    for (String s : new String[] {"foo\\bar", "\\|", "\\\\|\\", "a|b\nc\r\"", ""}) {
+      assertEquals(s, Escaper.unescapeSqlCopyFrom(Escaper.escapeSqlCopyFrom(s)));
+    }
+  }
 }